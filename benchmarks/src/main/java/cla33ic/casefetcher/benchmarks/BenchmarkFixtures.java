@@ -0,0 +1,245 @@
+package cla33ic.casefetcher.benchmarks;
+
+import ch.qos.logback.classic.Level;
+import cla33ic.casefetcher.config.LoggingConfig;
+import cla33ic.casefetcher.model.CaseOpeningEvent;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic inputs shaped like real Steam responses: inventory history pages, market listing
+ * pages and case opening events.
+ */
+final class BenchmarkFixtures {
+    static final int ROWS_PER_PAGE = 50;
+
+    private static final String[] CASES = {
+            "Fracture Case", "Clutch Case", "Spectrum 2 Case", "Dreams &amp; Nightmares Case", "Operation Bravo Case",
+            "Prisma Case", "Danger Zone Case", "Horizon Case", "Recoil Case", "Revolution Case", "Kilowatt Case",
+            "Snakebite Case", "Chroma 3 Case", "Gamma 2 Case", "Glove Case", "Falchion Case"
+    };
+    private static final String[] WEAPONS = {
+            "AK-47", "M4A4", "M4A1-S", "AWP", "Glock-18", "USP-S", "P250", "Desert Eagle", "MP9", "MAC-10", "Five-SeveN"
+    };
+    private static final String[] EXTERIORS = {
+            "Factory New", "Minimal Wear", "Field-Tested", "Well-Worn", "Battle-Scarred"
+    };
+    // Rarity colors with the approximate odds of a case
+    private static final String[] RARITY_COLORS = {"4b69ff", "8847ff", "d32ce6", "eb4b4b", "e4ae39"};
+    private static final String[] RARITY_NAMES = {
+            "Mil-Spec (Blue)", "Restricted (Purple)", "Classified (Pink)", "Covert (Red)", "Rare Special Item (Gold)"
+    };
+    private static final double[] RARITY_ODDS = {0.7992, 0.1598, 0.032, 0.0064, 0.0026};
+    private static final int ITEMS_PER_CASE = 17;
+    private static final DateTimeFormatter MARKET_DATE_FORMATTER = DateTimeFormatter.ofPattern("MMM dd yyyy", Locale.US);
+    private static final String[] MONTHS = {
+            "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"
+    };
+    // Cursors carry the first event of the next page, offset to look like Steam's history ids
+    private static final long CURSOR_S_BASE = 31_000_000_000L;
+    private static final LocalDateTime LATEST_OPENING = LocalDateTime.of(2024, 6, 30, 23, 0);
+
+    private BenchmarkFixtures() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Keeps the per-page and per-summary info logging of the application out of the measurements.
+     */
+    static void quietLogging() {
+        LoggingConfig.configureLogging(Level.WARN);
+    }
+
+    /**
+     * @return the JSON bodies of the history pages holding the given number of case openings, newest first
+     */
+    static List<String> historyPages(int events) {
+        List<String> pages = new ArrayList<>();
+        for (int first = 0; first < events; first += ROWS_PER_PAGE) {
+            int rows = Math.min(ROWS_PER_PAGE, events - first);
+            pages.add(historyPage(first, rows, first + rows < events));
+        }
+        return pages;
+    }
+
+    /**
+     * @return the JSON body of the history page starting at the given event of a history of {@code events} openings
+     */
+    static String historyPage(int firstEvent, int events) {
+        int rows = Math.max(0, Math.min(ROWS_PER_PAGE, events - firstEvent));
+        return historyPage(firstEvent, rows, firstEvent + rows < events);
+    }
+
+    /**
+     * @return the first event of the page requested with the given {@code cursor[s]} value
+     */
+    static int firstEventOfCursor(String cursorS) {
+        return (int) (Long.parseLong(cursorS) - CURSOR_S_BASE);
+    }
+
+    private static String historyPage(int firstEvent, int rows, boolean hasNextPage) {
+        Random random = new Random(firstEvent);
+        StringBuilder html = new StringBuilder();
+        JsonObject descriptions = new JsonObject();
+        for (int i = 0; i < rows; i++) {
+            int event = firstEvent + i;
+            LocalDateTime dateTime = openingTime(event);
+            int hour = dateTime.getHour() % 12 == 0 ? 12 : dateTime.getHour() % 12;
+            String caseName = CASES[event % CASES.length];
+            boolean rental = event % 97 == 0;
+            int rarity = rarity(random);
+            String classId = String.valueOf(300_000 + (event % CASES.length) * ITEMS_PER_CASE + random.nextInt(ITEMS_PER_CASE));
+            String instanceId = String.valueOf(random.nextInt(4));
+
+            html.append("<div class=\"tradehistoryrow\">\n\t<div class=\"tradehistory_date\">\n\t\t")
+                    .append(dateTime.getDayOfMonth()).append(' ').append(MONTHS[dateTime.getMonthValue() - 1])
+                    .append(", ").append(dateTime.getYear())
+                    .append("\t\t\t<div class=\"tradehistory_timestamp\">").append(hour).append(':')
+                    .append(String.format("%02d", dateTime.getMinute())).append(dateTime.getHour() < 12 ? "am" : "pm")
+                    .append("</div>\n\t</div>\n\t<div class=\"tradehistory_content\">\n\t\t<div class=\"tradehistory_event_description\">\n\t\t\t")
+                    .append(rental ? "Unlocked a container for rental" : "Unlocked a container").append("\t\t</div>\n")
+                    .append("\t\t<div class=\"tradehistory_items tradehistory_items_withimages\">\n\t\t\t<div class=\"tradehistory_items_plusminus\">-</div>\n\t\t\t<div class=\"tradehistory_items_group\">\n")
+                    .append("\t\t\t\t<span class=\"history_item economy_item_hoverable\" data-appid=\"730\" data-classid=\"")
+                    .append(100_000 + event % CASES.length).append("\" data-instanceid=\"0\"><img src=\"https://community.akamai.steamstatic.com/economy/image/case/120x40\"><span class=\"history_item_name\" style=\"color: #D2D2D2\">")
+                    .append(caseName).append("</span></span>\n")
+                    .append("\t\t\t\t<span class=\"history_item economy_item_hoverable\" data-appid=\"730\" data-classid=\"")
+                    .append(200_000 + event % CASES.length).append("\" data-instanceid=\"0\"><img src=\"https://community.akamai.steamstatic.com/economy/image/key/120x40\"><span class=\"history_item_name\" style=\"color: #D2D2D2\">")
+                    .append(caseName).append(" Key</span></span>\n\t\t\t</div>\n\t\t</div>\n")
+                    .append("\t\t<div class=\"tradehistory_items tradehistory_items_withimages\">\n\t\t\t<div class=\"tradehistory_items_plusminus\">+</div>\n\t\t\t<div class=\"tradehistory_items_group\">\n")
+                    .append("\t\t\t\t<a class=\"history_item economy_item_hoverable\" href=\"https://steamcommunity.com/profiles/0/inventory/#730_2_").append(event)
+                    .append("\" data-appid=\"730\" data-classid=\"").append(classId).append("\" data-instanceid=\"").append(instanceId)
+                    .append("\"><img src=\"https://community.akamai.steamstatic.com/economy/image/item/120x40\"><span class=\"history_item_name\" style=\"color: #").append(RARITY_COLORS[rarity].toUpperCase(Locale.ROOT)).append("\">")
+                    .append(itemName(event, random)).append("</span></a>\n\t\t\t</div>\n\t\t</div>\n\t</div>\n</div>\n");
+
+            JsonObject description = new JsonObject();
+            description.addProperty("appid", 730);
+            description.addProperty("classid", classId);
+            description.addProperty("instanceid", instanceId);
+            description.addProperty("icon_url", "-9a81dlWLwJ2UUGcVs_nsVtzdOEdtWwKGZZLQHTxDZ7I56KU0Zwwo4NUX4oFJZEHLbXH5ApeO4YmlhxYQknCRvCo04DEVlxkKgpot7HxfDhjxszJemkV09-5lpKKqPrxN7LEmyVQ7MEpiLuSrYmnjQO3-UdsZGHyd4_Bd1RvNQ7T_FDrw-_ng5Pu75iY1zI97bhLsvQz");
+            description.addProperty("name", "Item " + classId);
+            description.addProperty("type", "Rifle");
+            JsonArray tags = new JsonArray();
+            tags.add(tag("Type", "CSGO_Type_Rifle", "Rifle", null));
+            tags.add(tag("Weapon", "weapon_ak47", "AK-47", null));
+            tags.add(tag("ItemSet", "set_community", caseName, null));
+            tags.add(tag("Quality", "normal", "Normal", null));
+            tags.add(tag("Rarity", "Rarity_Legendary_Weapon", RARITY_NAMES[rarity], RARITY_COLORS[rarity]));
+            tags.add(tag("Exterior", "WearCategory2", "Field-Tested", null));
+            description.add("tags", tags);
+            descriptions.add(classId + "_" + instanceId, description);
+        }
+
+        JsonObject descriptionsByApp = new JsonObject();
+        descriptionsByApp.add("730", descriptions);
+        JsonObject response = new JsonObject();
+        response.addProperty("success", true);
+        response.addProperty("html", html.toString());
+        response.addProperty("num", rows);
+        response.add("descriptions", descriptionsByApp);
+        if (hasNextPage) {
+            JsonObject cursor = new JsonObject();
+            cursor.addProperty("time", openingTime(firstEvent + rows).toEpochSecond(ZoneOffset.UTC));
+            cursor.addProperty("time_frac", 0);
+            cursor.addProperty("s", String.valueOf(CURSOR_S_BASE + firstEvent + rows));
+            response.add("cursor", cursor);
+        }
+        return new Gson().toJson(response);
+    }
+
+    private static JsonObject tag(String category, String internalName, String localizedName, String color) {
+        JsonObject tag = new JsonObject();
+        tag.addProperty("category", category);
+        tag.addProperty("internal_name", internalName);
+        tag.addProperty("localized_category_name", category);
+        tag.addProperty("localized_tag_name", localizedName);
+        if (color != null) {
+            tag.addProperty("color", color);
+        }
+        return tag;
+    }
+
+    /**
+     * @return a market listing page whose price history covers the given number of days, ending today
+     */
+    static String marketListingPage(int days) {
+        LocalDate last = LocalDate.of(2024, 6, 30);
+        StringBuilder page = new StringBuilder("<!DOCTYPE html><html><head><title>Steam Community Market</title>")
+                .append("<script type=\"text/javascript\">var g_rgAppContextData = {\"730\":{\"appid\":730}};</script></head><body>")
+                .append("<div id=\"market_commodity_order_spread\"><div class=\"market_commodity_orders_header\">Listings</div></div>\n")
+                .append("<script type=\"text/javascript\">\n\t\t$J(document).ready(function(){\n\t\t\tvar line1=[");
+        Random random = new Random(days);
+        for (int day = days - 1; day >= 0; day--) {
+            LocalDate date = last.minusDays(day);
+            // The most recent month is reported hourly, older days once
+            int samples = day < 30 ? 24 : 1;
+            for (int hour = 0; hour < samples; hour++) {
+                if (page.charAt(page.length() - 1) != '[') {
+                    page.append(',');
+                }
+                page.append("[\"").append(date.format(MARKET_DATE_FORMATTER)).append(' ')
+                        .append(String.format("%02d", hour)).append(": +0\",")
+                        .append(Math.round((0.03 + random.nextDouble() * 2) * 1000) / 1000.0)
+                        .append(",\"").append(100 + random.nextInt(50_000)).append("\"]");
+            }
+        }
+        page.append("];\n\t\t\tg_timePriceHistoryEarliest = new Date(line1[0][0]);\n\t\t});\n</script></body></html>");
+        return page.toString();
+    }
+
+    /**
+     * @return priced case opening events, newest first
+     */
+    static List<CaseOpeningEvent> events(int count) {
+        return events(0, count);
+    }
+
+    /**
+     * @return the priced events with the given ordinals, newest first; the same ordinal always yields the same event
+     */
+    static List<CaseOpeningEvent> events(int firstEvent, int count) {
+        List<CaseOpeningEvent> events = new ArrayList<>(count);
+        for (int event = firstEvent; event < firstEvent + count; event++) {
+            Random random = new Random(event);
+            boolean rental = event % 97 == 0;
+            int rarity = rarity(random);
+            String caseName = CASES[event % CASES.length].replace("&amp;", "&");
+            events.add(new CaseOpeningEvent(openingTime(event), caseName, caseName + " Key",
+                    rental ? "Rental Item" : itemName(event, random).replace("&trade;", "\u2122"), rental ? "Rental" : RARITY_NAMES[rarity],
+                    Math.round((0.03 + random.nextDouble() * 2) * 100) / 100.0, rental));
+        }
+        return events;
+    }
+
+    private static LocalDateTime openingTime(int event) {
+        // A few openings a day, going back in time
+        return LATEST_OPENING.minusMinutes(event * 397L);
+    }
+
+    private static int rarity(Random random) {
+        double roll = random.nextDouble();
+        for (int rarity = 0; rarity < RARITY_ODDS.length - 1; rarity++) {
+            roll -= RARITY_ODDS[rarity];
+            if (roll < 0) {
+                return rarity;
+            }
+        }
+        return RARITY_ODDS.length - 1;
+    }
+
+    private static String itemName(int event, Random random) {
+        return (random.nextInt(10) == 0 ? "StatTrak&trade; " : "")
+                + WEAPONS[(event + random.nextInt(ITEMS_PER_CASE)) % WEAPONS.length]
+                + " | Skin " + (event % CASES.length) + "-" + random.nextInt(ITEMS_PER_CASE)
+                + " (" + EXTERIORS[random.nextInt(EXTERIORS.length)] + ")";
+    }
+}
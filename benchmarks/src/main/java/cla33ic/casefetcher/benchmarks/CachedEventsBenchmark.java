@@ -0,0 +1,81 @@
+package cla33ic.casefetcher.benchmarks;
+
+import cla33ic.casefetcher.config.AppConfig;
+import cla33ic.casefetcher.model.CaseOpeningEvent;
+import cla33ic.casefetcher.util.CachedResultsHandler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Loading an account's cached events and merging the events of a new crawl into them.
+ * <p>
+ * The fresh events are the newest tenth of the history plus an overlap with the cache, as after a run some
+ * weeks after the previous one. The event log is written to a temporary results directory, which is deleted
+ * afterwards.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CachedEventsBenchmark {
+    @Param({"1", "100", "1000", "10000", "100000"})
+    private int events;
+
+    private Path resultsDir;
+    private String accountId;
+    private List<CaseOpeningEvent> cached;
+    private List<CaseOpeningEvent> fresh;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Each trial runs in its own fork, so the property is set before the application's settings are read
+        resultsDir = Files.createTempDirectory("casefetcher-jmh-");
+        System.setProperty("casefetcher.results.dir", resultsDir.toString());
+        if (!AppConfig.RESULTS_DIR.equals(resultsDir.toString())) {
+            throw new IllegalStateException("The results directory was read before the benchmark could set it");
+        }
+        BenchmarkFixtures.quietLogging();
+        int newEvents = Math.max(1, events / 10);
+        int overlap = Math.max(1, newEvents / 5);
+        cached = BenchmarkFixtures.events(newEvents, events);
+        fresh = BenchmarkFixtures.events(0, newEvents + overlap);
+
+        accountId = "jmh-benchmark-" + events;
+        CachedResultsHandler.appendCachedEvents(accountId, cached);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        deleteRecursively(resultsDir);
+    }
+
+    @Benchmark
+    public List<CaseOpeningEvent> loadCachedEvents() {
+        return CachedResultsHandler.loadCachedEvents(accountId);
+    }
+
+    @Benchmark
+    public List<CaseOpeningEvent> mergeEvents() {
+        return CachedResultsHandler.mergeEvents(cached, fresh);
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            files = new ArrayList<>(walk.sorted(Comparator.reverseOrder()).toList());
+        }
+        for (Path file : files) {
+            Files.delete(file);
+        }
+    }
+}
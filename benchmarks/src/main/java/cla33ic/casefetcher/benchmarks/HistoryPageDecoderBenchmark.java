@@ -0,0 +1,42 @@
+package cla33ic.casefetcher.benchmarks;
+
+import cla33ic.casefetcher.service.inventory.HistoryPageDecoder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding history responses: html, item descriptions and the pagination cursor in one pass. This replaced the
+ * JSON tree and the regex cursor scan of {@code UrlBuilder.extractCursor}.
+ * <p>
+ * The rarity cache is warm after the first invocation, as it is for every page after the first few of a crawl.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistoryPageDecoderBenchmark {
+    @Param({"1", "100", "1000", "10000", "100000"})
+    private int events;
+
+    private List<String> bodies;
+
+    @Setup
+    public void setUp() {
+        BenchmarkFixtures.quietLogging();
+        bodies = BenchmarkFixtures.historyPages(events);
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) throws IOException {
+        for (String body : bodies) {
+            blackhole.consume(HistoryPageDecoder.decode(new StringReader(body)));
+        }
+    }
+}
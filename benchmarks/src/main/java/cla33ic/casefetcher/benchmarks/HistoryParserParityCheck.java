@@ -0,0 +1,128 @@
+package cla33ic.casefetcher.benchmarks;
+
+import cla33ic.casefetcher.model.CaseOpeningEvent;
+import cla33ic.casefetcher.service.inventory.HistoryPageDecoder;
+import cla33ic.casefetcher.service.inventory.HistoryPageDecoder.HistoryPage;
+import cla33ic.casefetcher.service.parser.CaseOpeningParserType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that all case opening parsers produce identical events: on the history pages in
+ * {@code fixtures/history}, whose events must also match the expected ones stored next to them, and on
+ * synthetic pages. Exits with status 1 if any page differs.
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar cla33ic.casefetcher.benchmarks.HistoryParserParityCheck}
+ */
+public final class HistoryParserParityCheck {
+    private static final String FIXTURE_DIR = "/fixtures/history/";
+    // History responses covering the kinds of rows the parsers have to handle
+    private static final String[] FIXTURES = {"mixed_events", "lenient_rows", "no_openings"};
+    private static final int SYNTHETIC_EVENTS = 5_000;
+
+    private HistoryParserParityCheck() {
+        // Private constructor to prevent instantiation
+    }
+
+    public static void main(String[] args) throws IOException {
+        BenchmarkFixtures.quietLogging();
+        int failures = 0;
+        for (String fixture : FIXTURES) {
+            List<String> expected = readLines(FIXTURE_DIR + fixture + ".events.tsv");
+            try (Reader response = resourceReader(FIXTURE_DIR + fixture + ".json")) {
+                failures += check(fixture, HistoryPageDecoder.decode(response), expected);
+            }
+        }
+        List<String> pages = BenchmarkFixtures.historyPages(SYNTHETIC_EVENTS);
+        for (int i = 0; i < pages.size(); i++) {
+            failures += check("synthetic page " + (i + 1), HistoryPageDecoder.decode(new StringReader(pages.get(i))), null);
+        }
+
+        if (failures > 0) {
+            System.out.println(failures + " page(s) differ");
+            System.exit(1);
+        }
+        System.out.println("All parsers agree on " + FIXTURES.length + " fixture and " + pages.size() + " synthetic pages");
+    }
+
+    /**
+     * @param expected the expected events as written by {@link #format}, or {@code null} to only compare the parsers
+     * @return the number of failed checks, 0 or 1
+     */
+    private static int check(String name, HistoryPage page, List<String> expected) {
+        CaseOpeningParserType[] parserTypes = CaseOpeningParserType.values();
+        List<String> reference = expected;
+        String referenceName = "expected";
+        for (CaseOpeningParserType parserType : parserTypes) {
+            List<CaseOpeningEvent> events = parserType.create().extractCaseOpenings(page.html(), page.descriptions());
+            List<String> actual = events.stream().map(HistoryParserParityCheck::format).toList();
+            if (reference == null) {
+                reference = actual;
+                referenceName = parserType.name().toLowerCase();
+                continue;
+            }
+            if (!actual.equals(reference)) {
+                System.out.println(name + ": " + parserType.name().toLowerCase() + " differs from " + referenceName);
+                printDifference(reference, actual);
+                return 1;
+            }
+        }
+        if (expected != null) {
+            System.out.println(name + ": " + expected.size() + " events, all parsers match");
+        }
+        return 0;
+    }
+
+    private static void printDifference(List<String> expected, List<String> actual) {
+        for (int i = 0; i < Math.max(expected.size(), actual.size()); i++) {
+            String expectedLine = i < expected.size() ? expected.get(i) : "<none>";
+            String actualLine = i < actual.size() ? actual.get(i) : "<none>";
+            if (!expectedLine.equals(actualLine)) {
+                System.out.println("  event " + (i + 1) + ": expected " + expectedLine);
+                System.out.println("  event " + (i + 1) + ":   actual " + actualLine);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the fields of an event that the parsers produce, tab-separated
+     */
+    static String format(CaseOpeningEvent event) {
+        return event.dateTime() + "\t" + event.caseOpened() + "\t" + event.keyUsed() + "\t" + event.itemReceived()
+                + "\t" + event.rarity() + "\t" + event.isRental();
+    }
+
+    private static List<String> readLines(String resource) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (Reader reader = resourceReader(resource)) {
+            StringBuilder text = new StringBuilder();
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) > 0) {
+                text.append(buffer, 0, read);
+            }
+            for (String line : text.toString().split("\n")) {
+                if (!line.isEmpty()) {
+                    lines.add(line);
+                }
+            }
+        }
+        return lines;
+    }
+
+    private static Reader resourceReader(String resource) throws IOException {
+        InputStream stream = HistoryParserParityCheck.class.getResourceAsStream(resource);
+        if (stream == null) {
+            throw new IOException("Missing resource " + resource);
+        }
+        return new InputStreamReader(stream, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,88 @@
+package cla33ic.casefetcher.benchmarks;
+
+import cla33ic.casefetcher.model.PriceSeries;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.StreamParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The price history extraction that {@link cla33ic.casefetcher.service.market.PriceHistoryParser} replaced, kept as
+ * the baseline of {@link PriceHistoryParserBenchmark} and {@link PriceHistoryParserParityCheck}: the page is streamed
+ * through Jsoup up to the script holding the chart, {@code line1} is matched with a regex and decoded into a Gson
+ * tree, and each entry's date is split off and parsed with a {@code DateTimeFormatter}.
+ */
+final class LegacyPriceHistoryParser {
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("MMM dd yyyy", Locale.US);
+    private static final Pattern LINE1_PATTERN = Pattern.compile("\\$J\\(document\\)\\.ready\\(function\\(\\)\\s*\\{\\s*var line1=(\\[.*?]);", Pattern.DOTALL);
+    private static final String SCRIPT_MARKER = "$J(document).ready(function()";
+    private static final Gson gson = new Gson();
+
+    private LegacyPriceHistoryParser() {
+        // Private constructor to prevent instantiation
+    }
+
+    static PriceSeries parse(String listingPage) {
+        try {
+            return extractPriceData(extractScriptContent(new StringReader(listingPage)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String extractScriptContent(Reader listingPage) throws IOException {
+        try (StreamParser streamer = new StreamParser(Parser.htmlParser()).parse(listingPage, "")) {
+            Iterator<Element> elements = streamer.iterator();
+            while (elements.hasNext()) {
+                Element element = elements.next();
+                if (element.normalName().equals("script") && element.html().contains(SCRIPT_MARKER)) {
+                    return element.html();
+                }
+                // Completed elements are not needed any more, dropping them keeps the partial document small
+                element.remove();
+            }
+            return "";
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static PriceSeries extractPriceData(String scriptContent) {
+        Matcher matcher = LINE1_PATTERN.matcher(scriptContent);
+
+        if (matcher.find()) {
+            String line1Content = matcher.group(1);
+            List<List<Object>> rawData = gson.fromJson(line1Content, new TypeToken<List<List<Object>>>(){}.getType());
+
+            PriceSeries.Builder priceData = PriceSeries.builder(rawData.size());
+            for (List<Object> entry : rawData) {
+                try {
+                    String entryStr = (String) entry.get(0);
+                    String[] parts = entryStr.split(" ");
+                    String dateStr = parts[0] + " " + parts[1] + " " + parts[2];
+                    LocalDate date = LocalDate.parse(dateStr, DATE_FORMATTER);
+                    double price = ((Number) entry.get(1)).doubleValue();
+                    priceData.add(date, price);
+                } catch (Exception e) {
+                    // Skipped like the application did, without the sampled warning
+                }
+            }
+            return priceData.build();
+        }
+
+        return PriceSeries.empty();
+    }
+}
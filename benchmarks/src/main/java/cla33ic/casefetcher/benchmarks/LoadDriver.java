@@ -0,0 +1,199 @@
+package cla33ic.casefetcher.benchmarks;
+
+import cla33ic.casefetcher.cache.InMemoryCacheService;
+import cla33ic.casefetcher.cache.PriceHistoryStore;
+import cla33ic.casefetcher.metrics.MetricsFormat;
+import cla33ic.casefetcher.metrics.MetricsRegistry;
+import cla33ic.casefetcher.metrics.MetricsReporter;
+import cla33ic.casefetcher.model.CaseOpeningEvent;
+import cla33ic.casefetcher.model.PriceSeries;
+import cla33ic.casefetcher.service.http.DefaultRetryPolicy;
+import cla33ic.casefetcher.service.http.HttpClientService;
+import cla33ic.casefetcher.service.http.HttpClientServiceImpl;
+import cla33ic.casefetcher.service.inventory.InventoryHistoryServiceImpl;
+import cla33ic.casefetcher.service.market.CasePriceResolver;
+import cla33ic.casefetcher.service.market.SteamMarketServiceImpl;
+import cla33ic.casefetcher.service.parser.CaseOpeningParserType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Crawls a {@link SteamStandInServer} with the application's own services and reports throughput and latency.
+ * <p>
+ * Options (all optional): {@code --events}, {@code --price-days}, {@code --latency-ms}, {@code --jitter-ms},
+ * {@code --bandwidth-kbps}, {@code --rate-429}, {@code --retry-after-s}, {@code --rate-5xx},
+ * {@code --request-delay-ms}, {@code --market-delay-ms}, {@code --retry-delay-ms} and
+ * {@code --parser=jsoup|streaming}. {@code --metrics=<file>} additionally writes the application's metrics to the
+ * file, as JSON if its name ends with ".json" and in the Prometheus text format otherwise. The delays default to 0 and the retry delay to 100 ms, so the crawl runs
+ * as fast as the simulated conditions allow.
+ */
+public class LoadDriver {
+    private static final String COOKIE = "sessionid=loadtest; steamLoginSecure=loadtest";
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = parseOptions(args);
+        SteamStandInServer.Config config = new SteamStandInServer.Config(0,
+                Integer.parseInt(options.getOrDefault("events", "5000")),
+                Integer.parseInt(options.getOrDefault("price-days", "3000")),
+                Long.parseLong(options.getOrDefault("latency-ms", "50")),
+                Long.parseLong(options.getOrDefault("jitter-ms", "20")),
+                Long.parseLong(options.getOrDefault("bandwidth-kbps", "0")) * 1024,
+                Double.parseDouble(options.getOrDefault("rate-429", "0")),
+                Integer.parseInt(options.getOrDefault("retry-after-s", "0")),
+                Double.parseDouble(options.getOrDefault("rate-5xx", "0")));
+        CaseOpeningParserType parserType = CaseOpeningParserType.fromName(options.getOrDefault("parser", "streaming"));
+
+        BenchmarkFixtures.quietLogging();
+        Path priceHistoryDir = Files.createTempDirectory("loadtest-prices");
+        try (SteamStandInServer server = new SteamStandInServer(config)) {
+            // Read by AppConfig, so they have to be set before the first service is created
+            System.setProperty("casefetcher.market.url", server.marketListingsUrl());
+            System.setProperty("casefetcher.request.delay.ms", options.getOrDefault("request-delay-ms", "0"));
+            System.setProperty("casefetcher.market.delay.ms", options.getOrDefault("market-delay-ms", "0"));
+            System.setProperty("casefetcher.retry.delay.ms", options.getOrDefault("retry-delay-ms", "100"));
+
+            TimedHttpClientService httpClientService = new TimedHttpClientService(new HttpClientServiceImpl());
+            InMemoryCacheService<String, PriceSeries> priceCache = new InMemoryCacheService<>();
+            SteamMarketServiceImpl steamMarketService = new SteamMarketServiceImpl(httpClientService,
+                    priceCache, new PriceHistoryStore(priceHistoryDir), COOKIE);
+            InventoryHistoryServiceImpl inventoryHistoryService = new InventoryHistoryServiceImpl(httpClientService,
+                    parserType.create(), new CasePriceResolver(steamMarketService), COOKIE);
+
+            long start = System.nanoTime();
+            List<CaseOpeningEvent> events = inventoryHistoryService.fetchInventoryHistory(server.inventoryHistoryUrl());
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            long[] historyLatencies = httpClientService.latencies(true);
+            long[] marketLatencies = httpClientService.latencies(false);
+            System.out.printf("Crawled %d history pages (%d events) in %.2f s%n", historyLatencies.length, events.size(), seconds);
+            System.out.printf("History pages: %.1f pages/s, latency p50 %d ms, p99 %d ms%n",
+                    historyLatencies.length / seconds, percentile(historyLatencies, 50), percentile(historyLatencies, 99));
+            System.out.printf("Market listings: %d requests, latency p50 %d ms, p99 %d ms%n",
+                    marketLatencies.length, percentile(marketLatencies, 50), percentile(marketLatencies, 99));
+            System.out.printf("Server: %d history and %d market responses, %d x 429, %d x 5xx, %d KiB of bodies%n",
+                    server.historyResponses(), server.marketResponses(), server.tooManyRequestsResponses(),
+                    server.serverErrorResponses(), server.bodyBytesSent() / 1024);
+            DefaultRetryPolicy retryPolicy = DefaultRetryPolicy.shared();
+            System.out.printf("Client: %d attempts, %d retries, %d requests given up, %d circuit openings%n",
+                    retryPolicy.getAttempts(), retryPolicy.getRetries(), retryPolicy.getGivenUp(),
+                    retryPolicy.getCircuitOpenings());
+            System.out.println("Price cache: " + priceCache.getStats());
+            if (options.containsKey("metrics")) {
+                String metricsFile = options.get("metrics");
+                MetricsFormat format = metricsFile.endsWith(".json") ? MetricsFormat.JSON : MetricsFormat.PROMETHEUS;
+                new MetricsReporter(MetricsRegistry.global(), format, Path.of(metricsFile), 0).write();
+            }
+        } finally {
+            deleteRecursively(priceHistoryDir);
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    /**
+     * @return the nearest-rank percentile of the latencies in milliseconds, 0 if there are none
+     */
+    private static long percentile(long[] latencies, int percentile) {
+        if (latencies.length == 0) {
+            return 0;
+        }
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1_000_000;
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            files = new ArrayList<>(walk.sorted(Comparator.reverseOrder()).toList());
+        }
+        for (Path file : files) {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Records the latency of every GET, including its retries, separately for history pages and market listings.
+     */
+    private static final class TimedHttpClientService implements HttpClientService {
+        private final HttpClientService delegate;
+        private final List<Long> historyLatencies = new ArrayList<>();
+        private final List<Long> marketLatencies = new ArrayList<>();
+
+        private TimedHttpClientService(HttpClientService delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String get(String url, Map<String, String> headers) throws IOException {
+            long start = System.nanoTime();
+            try {
+                return delegate.get(url, headers);
+            } finally {
+                record(url, System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public <T> T get(String url, Map<String, String> headers, BodyReader<T> bodyReader) throws IOException {
+            long start = System.nanoTime();
+            try {
+                return delegate.get(url, headers, bodyReader);
+            } finally {
+                record(url, System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public CompletableFuture<String> getAsync(String url, Map<String, String> headers) {
+            long start = System.nanoTime();
+            return delegate.getAsync(url, headers).whenComplete((body, failure) -> record(url, System.nanoTime() - start));
+        }
+
+        @Override
+        public <T> CompletableFuture<T> getAsync(String url, Map<String, String> headers, BodyReader<T> bodyReader) {
+            long start = System.nanoTime();
+            return delegate.getAsync(url, headers, bodyReader)
+                    .whenComplete((result, failure) -> record(url, System.nanoTime() - start));
+        }
+
+        private synchronized void record(String url, long latency) {
+            (url.contains("/inventoryhistory/") ? historyLatencies : marketLatencies).add(latency);
+        }
+
+        @Override
+        public String post(String url, Map<String, String> headers, String body) throws IOException {
+            return delegate.post(url, headers, body);
+        }
+
+        @Override
+        public void setCookie(String cookie) {
+            delegate.setCookie(cookie);
+        }
+
+        private synchronized long[] latencies(boolean history) {
+            return (history ? historyLatencies : marketLatencies).stream().mapToLong(Long::longValue).toArray();
+        }
+    }
+}
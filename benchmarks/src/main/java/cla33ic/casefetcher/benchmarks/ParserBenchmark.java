@@ -0,0 +1,51 @@
+package cla33ic.casefetcher.benchmarks;
+
+import cla33ic.casefetcher.service.inventory.HistoryPageDecoder;
+import cla33ic.casefetcher.service.inventory.HistoryPageDecoder.HistoryPage;
+import cla33ic.casefetcher.service.parser.CaseOpeningParser;
+import cla33ic.casefetcher.service.parser.CaseOpeningParserType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extracting the case openings from the HTML of decoded history pages.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+    @Param({"1", "100", "1000", "10000", "100000"})
+    private int events;
+
+    @Param({"JSOUP", "STREAMING"})
+    private CaseOpeningParserType parser;
+
+    private CaseOpeningParser caseOpeningParser;
+    private List<HistoryPage> pages;
+
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkFixtures.quietLogging();
+        caseOpeningParser = parser.create();
+        pages = new ArrayList<>();
+        for (String body : BenchmarkFixtures.historyPages(events)) {
+            pages.add(HistoryPageDecoder.decode(new StringReader(body)));
+        }
+    }
+
+    @Benchmark
+    public void extractCaseOpenings(Blackhole blackhole) {
+        for (HistoryPage page : pages) {
+            blackhole.consume(caseOpeningParser.extractCaseOpenings(page.html(), page.descriptions()));
+        }
+    }
+}
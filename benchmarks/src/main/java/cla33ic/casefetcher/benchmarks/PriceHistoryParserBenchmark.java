@@ -0,0 +1,41 @@
+package cla33ic.casefetcher.benchmarks;
+
+import cla33ic.casefetcher.model.PriceSeries;
+import cla33ic.casefetcher.service.market.PriceHistoryParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extracting the daily price history from a market listing page in one scan of the raw page, against the
+ * {@link LegacyPriceHistoryParser} it replaced, which streamed the page through Jsoup, matched the script with a regex
+ * and decoded {@code line1} into a Gson tree whose entries were split and parsed with a {@code DateTimeFormatter}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PriceHistoryParserBenchmark {
+    @Param({"1", "100", "1000", "10000", "100000"})
+    private int days;
+
+    private String listingPage;
+
+    @Setup
+    public void setUp() {
+        BenchmarkFixtures.quietLogging();
+        listingPage = BenchmarkFixtures.marketListingPage(days);
+    }
+
+    @Benchmark
+    public PriceSeries parse() {
+        return PriceHistoryParser.parse(listingPage);
+    }
+
+    @Benchmark
+    public PriceSeries legacyParse() {
+        return LegacyPriceHistoryParser.parse(listingPage);
+    }
+}
@@ -0,0 +1,319 @@
+package cla33ic.casefetcher.benchmarks;
+
+import ch.qos.logback.classic.Level;
+import cla33ic.casefetcher.config.LoggingConfig;
+import cla33ic.casefetcher.model.PriceSeries;
+import cla33ic.casefetcher.service.market.PriceHistoryParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.time.format.SignStyle;
+import java.time.format.TextStyle;
+import java.time.temporal.ChronoField;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Checks that {@link PriceHistoryParser} decodes {@code line1} entries exactly as {@code LocalDate.parse} and
+ * {@code Double.parseDouble} would: on every day of the years covering the Gregorian leap rules, with zero-padded
+ * and single-digit days, on generated prices including ones in exponent notation, and on malformed dates, prices
+ * and arrays. The listing page in {@code fixtures/market} and synthetic listing pages are also compared with the
+ * {@link LegacyPriceHistoryParser}. Exits with status 1 on any difference.
+ * <p>
+ * Values longer than the parser's 64 character buffer are rejected by design and not covered.
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar cla33ic.casefetcher.benchmarks.PriceHistoryParserParityCheck}
+ */
+public final class PriceHistoryParserParityCheck {
+    private static final String LISTING_FIXTURE = "/fixtures/market/listing.html";
+    private static final int[] SYNTHETIC_LISTING_DAYS = {1, 100, 4_000};
+    // A full 400 year cycle with its century years, and the ends of the four digit years
+    private static final int[][] YEAR_RANGES = {{0, 3}, {1600, 2099}, {9996, 9999}};
+    private static final int GENERATED_PRICES = 200_000;
+    private static final String[] MONTHS =
+            {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+    // The date prefix of an entry as the parser reads it: a one or two digit day and a four digit year
+    private static final DateTimeFormatter REFERENCE_DATE = new DateTimeFormatterBuilder()
+            .appendText(ChronoField.MONTH_OF_YEAR, TextStyle.SHORT)
+            .appendLiteral(' ')
+            .appendValue(ChronoField.DAY_OF_MONTH, 1, 2, SignStyle.NOT_NEGATIVE)
+            .appendLiteral(' ')
+            .appendValue(ChronoField.YEAR, 4)
+            .toFormatter(Locale.US)
+            .withResolverStyle(ResolverStyle.STRICT);
+    private static final String[] PRICES = {
+            "0", "0.0", "00.50", ".5", "5.", "0.03", "0.425", "1234.56", "999999999999999", "9007199254740993",
+            "123456789012345678", "0.1234567890123456789012", "0.0000000000000000000001", "0.00000000000000000000001",
+            "1e3", "1E3", "2.5e-3", "1e+2", "1.7976931348623157E308", "4.9E-324", "1e-400", "-1.5", "+2", "-0",
+            "0x1p3", "1.5f", "1.5d", "\"1.5\"", "\" 1.5\""
+    };
+    private static final String[] MALFORMED_PRICES = {
+            "\"\"", "abc", ".", "1.2.3", "1e", "e5", "--1", "1_000", "NaN", "Infinity", "-Infinity", "1e309", "null",
+            "true", "0x10"
+    };
+    private static final String[] DATES = {
+            "Jan 01 2020 01: +0", "Jan 1 2020", "Jan 01 2020", "Jan 01 2020 ", "Feb 29 2000", "Feb 29 2024",
+            "Feb 28 1900", "Dec 31 9999", "Jan 01 0000", "Mar 09 2015 17: +0"
+    };
+    private static final String[] MALFORMED_DATES = {
+            "", "Jan", "Jan 01", "Jan 01 20", "Jan 01 202", "Jan 01 2020x", "Jan 01 20200", "Jan 1  2020",
+            "Jan  1 2020", " Jan 01 2020", "jan 01 2020", "JAN 01 2020", "Sept 01 2020", "Foo 01 2020", "Jan 00 2020",
+            "Jan 32 2020", "Jan 001 2020", "Jan +1 2020", "Jan 1a 2020", "Jan 01 -202", "Feb 29 1900", "Feb 29 2100",
+            "Feb 29 2023", "Feb 30 2024", "Apr 31 2024", "Jun 31 2024", "Sep 31 2024", "Nov 31 2024",
+            "Jan 01 2020\t01", "2020-01-01"
+    };
+    private static final String[] MALFORMED_ARRAYS = {
+            "[[\"Jan 01 2020\",1.5]", "[[\"Jan 01 2020\",1.5];", "[[\"Jan 01 2020,1.5]]", "[1.5]",
+            "[[\"Jan 01 2020\" 1.5]]", "[[,]]", "[[\"Jan 01 2020\",1.5],]", "[[\"Jan 01 2020\",1.5]x]"
+    };
+
+    private PriceHistoryParserParityCheck() {
+        // Private constructor to prevent instantiation
+    }
+
+    public static void main(String[] args) throws IOException {
+        // The malformed entries are expected to be skipped with a warning
+        LoggingConfig.configureLogging(Level.ERROR);
+        int failures = 0;
+        failures += check("every day, zero-padded", everyDay(true));
+        failures += check("every day, single-digit days", everyDay(false));
+        failures += check("generated prices", generatedPrices());
+        int entries = 0;
+        for (String date : DATES) {
+            failures += check("date " + date, List.of(new Entry(quote(date), "1.5")));
+            entries++;
+        }
+        for (String date : MALFORMED_DATES) {
+            failures += check("malformed date " + date, List.of(new Entry(quote(date), "1.5")));
+            entries++;
+        }
+        failures += check("unquoted date", List.of(new Entry("20200101", "1.5")));
+        for (String price : PRICES) {
+            failures += check("price " + price, List.of(new Entry(quote("Jan 01 2020 01: +0"), price)));
+            entries++;
+        }
+        for (String price : MALFORMED_PRICES) {
+            failures += check("malformed price " + price, List.of(new Entry(quote("Jan 01 2020 01: +0"), price)));
+            entries++;
+        }
+        failures += check("entry without a price", List.of(new Entry(quote("Jan 01 2020 01: +0"), null)));
+        for (String line1 : MALFORMED_ARRAYS) {
+            failures += checkRejected(line1);
+        }
+        System.out.println(entries + " single entries and " + MALFORMED_ARRAYS.length + " malformed arrays checked");
+
+        failures += checkAgainstLegacy("fixture listing", readResource(LISTING_FIXTURE));
+        for (int days : SYNTHETIC_LISTING_DAYS) {
+            failures += checkAgainstLegacy("synthetic listing of " + days + " days",
+                    BenchmarkFixtures.marketListingPage(days));
+        }
+
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("PriceHistoryParser agrees with LocalDate.parse, Double.parseDouble and the legacy parser");
+    }
+
+    /**
+     * @return one entry for every day of {@link #YEAR_RANGES}, with a generated price
+     */
+    private static List<Entry> everyDay(boolean zeroPadded) {
+        Random random = new Random(zeroPadded ? 1 : 2);
+        List<Entry> entries = new ArrayList<>();
+        for (int[] years : YEAR_RANGES) {
+            for (LocalDate date = LocalDate.of(years[0], 1, 1); date.getYear() <= years[1]; date = date.plusDays(1)) {
+                String day = zeroPadded ? String.format("%02d", date.getDayOfMonth()) : Integer.toString(date.getDayOfMonth());
+                String text = MONTHS[date.getMonthValue() - 1] + " " + day + " " + String.format("%04d", date.getYear())
+                        + " " + String.format("%02d", random.nextInt(24)) + ": +0";
+                entries.add(new Entry(quote(text), generatedPrice(random)));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @return entries on consecutive days, so that no price overwrites another
+     */
+    private static List<Entry> generatedPrices() {
+        Random random = new Random(3);
+        List<Entry> entries = new ArrayList<>(GENERATED_PRICES);
+        LocalDate date = LocalDate.of(1900, 1, 1);
+        for (int i = 0; i < GENERATED_PRICES; i++, date = date.plusDays(1)) {
+            String text = MONTHS[date.getMonthValue() - 1] + " " + String.format("%02d", date.getDayOfMonth()) + " "
+                    + date.getYear() + " 01: +0";
+            entries.add(new Entry(quote(text), generatedPrice(random)));
+        }
+        return entries;
+    }
+
+    /**
+     * @return a price as Steam writes them, a decimal of up to 20 digits, or a double in exponent notation
+     */
+    private static String generatedPrice(Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return Double.toString(Math.round((0.03 + random.nextDouble() * 2) * 1000) / 1000.0);
+            case 1: {
+                StringBuilder digits = new StringBuilder();
+                int length = 1 + random.nextInt(20);
+                for (int i = 0; i < length; i++) {
+                    digits.append((char) ('0' + random.nextInt(10)));
+                }
+                digits.insert(random.nextInt(length + 1), '.');
+                return digits.length() == 1 ? "0" : digits.toString();
+            }
+            case 2:
+                // Double.toString uses exponents outside of 10^-3 to 10^7
+                return Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(61) - 30));
+            default:
+                double value;
+                do {
+                    value = Double.longBitsToDouble(random.nextLong() & Long.MAX_VALUE);
+                } while (!Double.isFinite(value));
+                return Double.toString(value);
+        }
+    }
+
+    /**
+     * Compares the parsed page of the entries with the prices a reference parse of each entry yields.
+     * @return the number of failed checks, 0 or 1
+     */
+    private static int check(String name, List<Entry> entries) {
+        StringBuilder line1 = new StringBuilder("[");
+        PriceSeries.Builder expected = PriceSeries.builder(entries.size());
+        for (Entry entry : entries) {
+            if (line1.length() > 1) {
+                line1.append(',');
+            }
+            line1.append('[').append(entry.date());
+            if (entry.price() != null) {
+                line1.append(',').append(entry.price()).append(",\"7\"");
+            }
+            line1.append(']');
+
+            LocalDate date = referenceDate(unquote(entry.date()));
+            double price = entry.price() == null ? Double.NaN : referencePrice(unquote(entry.price()));
+            if (date != null && !Double.isNaN(price)) {
+                expected.add(date, price);
+            }
+        }
+        line1.append(']');
+
+        PriceSeries actual;
+        try {
+            actual = PriceHistoryParser.parse(listingPage(line1.toString()));
+        } catch (UncheckedIOException e) {
+            System.out.println(name + ": " + e.getCause().getMessage());
+            return 1;
+        }
+        return compare(name, "LocalDate.parse and Double.parseDouble", expected.build(), actual);
+    }
+
+    /**
+     * @return the number of failed checks, 0 or 1
+     */
+    private static int checkRejected(String line1) {
+        try {
+            PriceSeries prices = PriceHistoryParser.parse(listingPage(line1));
+            System.out.println("malformed array " + line1 + ": parsed into " + prices.size() + " prices");
+            return 1;
+        } catch (UncheckedIOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return the number of failed checks, 0 or 1
+     */
+    private static int checkAgainstLegacy(String name, String listingPage) {
+        PriceSeries expected = LegacyPriceHistoryParser.parse(listingPage);
+        int failures = compare(name, "the legacy parser", expected, PriceHistoryParser.parse(listingPage));
+        if (failures == 0) {
+            System.out.println(name + ": " + expected.size() + " days, parsers match");
+        }
+        return failures;
+    }
+
+    private static int compare(String name, String referenceName, PriceSeries expected, PriceSeries actual) {
+        for (int i = 0; i < Math.max(expected.size(), actual.size()); i++) {
+            String expectedDay = i < expected.size() ? expected.dateAt(i) + " " + expected.priceAt(i) : "<none>";
+            String actualDay = i < actual.size() ? actual.dateAt(i) + " " + actual.priceAt(i) : "<none>";
+            boolean same = i < expected.size() && i < actual.size()
+                    && expected.epochDayAt(i) == actual.epochDayAt(i)
+                    && Double.doubleToLongBits(expected.priceAt(i)) == Double.doubleToLongBits(actual.priceAt(i));
+            if (!same) {
+                System.out.println(name + ": differs from " + referenceName);
+                System.out.println("  day " + (i + 1) + ": expected " + expectedDay);
+                System.out.println("  day " + (i + 1) + ":   actual " + actualDay);
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return the date the text of an entry starts with, or {@code null} if it does not start with a valid one
+     */
+    private static LocalDate referenceDate(String text) {
+        String[] parts = text.split(" ", 4);
+        if (parts.length < 3) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(parts[0] + " " + parts[1] + " " + parts[2], REFERENCE_DATE);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the price, or {@code NaN} if the text is not a finite number
+     */
+    private static double referencePrice(String text) {
+        try {
+            double price = Double.parseDouble(text);
+            return Double.isFinite(price) ? price : Double.NaN;
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static String listingPage(String line1) {
+        return "<!DOCTYPE html><html><body><script type=\"text/javascript\">\n\t\t$J(document).ready(function(){\n"
+                + "\t\t\tvar line1=" + line1 + ";\n\t\t});\n</script></body></html>";
+    }
+
+    private static String quote(String text) {
+        return "\"" + text + "\"";
+    }
+
+    private static String unquote(String value) {
+        return value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")
+                ? value.substring(1, value.length() - 1) : value;
+    }
+
+    private static String readResource(String resource) throws IOException {
+        try (InputStream stream = PriceHistoryParserParityCheck.class.getResourceAsStream(resource)) {
+            if (stream == null) {
+                throw new IOException("Missing resource " + resource);
+            }
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * An entry of {@code line1} as written in the page: a quoted date and an unquoted price, or {@code null} for none.
+     */
+    private record Entry(String date, String price) {
+    }
+}
@@ -0,0 +1,89 @@
+package cla33ic.casefetcher.benchmarks;
+
+import cla33ic.casefetcher.model.PriceSeries;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looking up the prices of a container's case openings in its price history: per event in a {@code TreeMap}, as
+ * before {@link PriceSeries}, per event in a price series, and batched over the sorted dates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PriceLookupBenchmark {
+    private static final int HISTORY_DAYS = 3000;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2016, 1, 1);
+
+    @Param({"100", "1000", "10000", "100000"})
+    private int events;
+
+    private TreeMap<LocalDate, Double> treeMap;
+    private PriceSeries series;
+    private LocalDate[] dates;
+    private int[] sortedEpochDays;
+
+    @Setup
+    public void setUp() {
+        treeMap = new TreeMap<>();
+        PriceSeries.Builder builder = PriceSeries.builder(HISTORY_DAYS);
+        Random random = new Random(42);
+        for (int day = 0; day < HISTORY_DAYS; day++) {
+            // Every tenth day has no price, so some lookups fall back to an earlier day
+            if (day % 10 != 9) {
+                double price = 0.03 + random.nextDouble();
+                treeMap.put(FIRST_DAY.plusDays(day), price);
+                builder.add(FIRST_DAY.plusDays(day), price);
+            }
+        }
+        series = builder.build();
+
+        dates = new LocalDate[events];
+        sortedEpochDays = new int[events];
+        for (int i = 0; i < events; i++) {
+            dates[i] = FIRST_DAY.plusDays(random.nextInt(HISTORY_DAYS));
+            sortedEpochDays[i] = (int) dates[i].toEpochDay();
+        }
+        Arrays.sort(sortedEpochDays);
+    }
+
+    @Benchmark
+    public double treeMapPerEvent() {
+        double total = 0;
+        for (LocalDate date : dates) {
+            Double price = treeMap.get(date);
+            if (price == null) {
+                Map.Entry<LocalDate, Double> floor = treeMap.floorEntry(date);
+                price = floor != null ? floor.getValue() : treeMap.ceilingEntry(date).getValue();
+            }
+            total += price;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double seriesPerEvent() {
+        double total = 0;
+        for (LocalDate date : dates) {
+            int index = series.floorIndex(date.toEpochDay());
+            total += series.priceAt(Math.max(index, 0));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double[] seriesBatched() {
+        double[] prices = new double[sortedEpochDays.length];
+        series.floorPrices(sortedEpochDays, prices);
+        return prices;
+    }
+}
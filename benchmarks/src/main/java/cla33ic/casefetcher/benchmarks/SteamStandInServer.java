@@ -0,0 +1,228 @@
+package cla33ic.casefetcher.benchmarks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Embeddable local stand-in for the parts of Steam the application talks to.
+ * <p>
+ * {@code /id/{account}/inventoryhistory/?ajax=1} serves synthetic history pages with valid cursors and
+ * descriptions, and {@code /market/listings/730/{name}} serves listing pages with a {@code line1} price
+ * script. Every response is delayed and throttled as configured, and may be replaced by a 429 or 5xx.
+ * Bodies are gzip compressed when the request accepts it. Listing pages carry an ETag and are answered with
+ * a 304 when the request's If-None-Match matches it.
+ */
+public class SteamStandInServer implements AutoCloseable {
+    private static final int WRITE_CHUNK_SIZE = 8 * 1024;
+
+    private final Config config;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final String marketListingPage;
+    private final String marketListingEtag;
+    private final AtomicLong historyResponses = new AtomicLong();
+    private final AtomicLong marketResponses = new AtomicLong();
+    private final AtomicLong tooManyRequestsResponses = new AtomicLong();
+    private final AtomicLong serverErrorResponses = new AtomicLong();
+    private final AtomicLong notModifiedResponses = new AtomicLong();
+    private final AtomicLong bodyBytesSent = new AtomicLong();
+
+    public SteamStandInServer(Config config) throws IOException {
+        this.config = config;
+        this.marketListingPage = BenchmarkFixtures.marketListingPage(config.priceDays());
+        this.marketListingEtag = "\"" + Integer.toHexString(marketListingPage.hashCode()) + "\"";
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", config.port()), 0);
+        server.createContext("/id/", this::handleHistory);
+        server.createContext("/market/listings/730/", this::handleMarket);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * @return the profile URL of the synthetic account, as entered by a user
+     */
+    public String inventoryHistoryUrl() {
+        return baseUrl() + "/id/loadtest/inventoryhistory/";
+    }
+
+    public String marketListingsUrl() {
+        return baseUrl() + "/market/listings/730/";
+    }
+
+    public long historyResponses() {
+        return historyResponses.get();
+    }
+
+    public long marketResponses() {
+        return marketResponses.get();
+    }
+
+    public long tooManyRequestsResponses() {
+        return tooManyRequestsResponses.get();
+    }
+
+    public long serverErrorResponses() {
+        return serverErrorResponses.get();
+    }
+
+    public long notModifiedResponses() {
+        return notModifiedResponses.get();
+    }
+
+    /**
+     * @return the number of response body bytes sent, after compression
+     */
+    public long bodyBytesSent() {
+        return bodyBytesSent.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handleHistory(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!simulateConditions(exchange)) {
+                return;
+            }
+            String cursor = queryParameters(exchange.getRequestURI().getRawQuery()).get("cursor[s]");
+            int firstEvent = cursor == null ? 0 : BenchmarkFixtures.firstEventOfCursor(cursor);
+            historyResponses.incrementAndGet();
+            send(exchange, "application/json; charset=utf-8",
+                    BenchmarkFixtures.historyPage(firstEvent, config.historyEvents()));
+        }
+    }
+
+    private void handleMarket(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!simulateConditions(exchange)) {
+                return;
+            }
+            marketResponses.incrementAndGet();
+            exchange.getResponseHeaders().add("ETag", marketListingEtag);
+            if (marketListingEtag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModifiedResponses.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            send(exchange, "text/html; charset=utf-8", marketListingPage);
+        }
+    }
+
+    /**
+     * Applies the configured latency and error rates.
+     * @return whether the request should be answered normally
+     */
+    private boolean simulateConditions(HttpExchange exchange) throws IOException {
+        sleep(config.latencyMillis() + (config.latencyJitterMillis() > 0
+                ? ThreadLocalRandom.current().nextLong(config.latencyJitterMillis() + 1) : 0));
+
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < config.tooManyRequestsRate()) {
+            tooManyRequestsResponses.incrementAndGet();
+            if (config.retryAfterSeconds() > 0) {
+                exchange.getResponseHeaders().add("Retry-After", String.valueOf(config.retryAfterSeconds()));
+            }
+            exchange.sendResponseHeaders(429, -1);
+            return false;
+        }
+        if (roll < config.tooManyRequestsRate() + config.serverErrorRate()) {
+            serverErrorResponses.incrementAndGet();
+            exchange.sendResponseHeaders(ThreadLocalRandom.current().nextBoolean() ? 502 : 503, -1);
+            return false;
+        }
+        return true;
+    }
+
+    private void send(HttpExchange exchange, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            bytes = gzip(bytes);
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        }
+        bodyBytesSent.addAndGet(bytes.length);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (int offset = 0; offset < bytes.length; offset += WRITE_CHUNK_SIZE) {
+                int length = Math.min(WRITE_CHUNK_SIZE, bytes.length - offset);
+                out.write(bytes, offset, length);
+                if (config.bytesPerSecond() > 0) {
+                    out.flush();
+                    sleep(length * 1000L / config.bytesPerSecond());
+                }
+            }
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static Map<String, String> queryParameters(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null) {
+            return parameters;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(parameter.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Behavior of the stand-in server.
+     * @param port the port to listen on, 0 for any free port
+     * @param historyEvents the number of case openings in the synthetic inventory history
+     * @param priceDays the number of days covered by every market price history
+     * @param latencyMillis the delay before every response
+     * @param latencyJitterMillis the maximum random delay added to the latency
+     * @param bytesPerSecond the bandwidth of every response body, 0 for unlimited
+     * @param tooManyRequestsRate the fraction of requests answered with 429
+     * @param retryAfterSeconds the Retry-After sent with a 429, 0 for none
+     * @param serverErrorRate the fraction of requests answered with 502 or 503
+     */
+    public record Config(int port, int historyEvents, int priceDays, long latencyMillis, long latencyJitterMillis,
+                         long bytesPerSecond, double tooManyRequestsRate, int retryAfterSeconds, double serverErrorRate) {
+    }
+}
@@ -0,0 +1,39 @@
+package cla33ic.casefetcher.benchmarks;
+
+import cla33ic.casefetcher.model.CaseOpeningEvent;
+import cla33ic.casefetcher.model.CaseOpeningSummary;
+import cla33ic.casefetcher.service.inventory.InventoryHistoryServiceImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summarizing an account's case openings.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SummaryBenchmark {
+    @Param({"1", "100", "1000", "10000", "100000"})
+    private int events;
+
+    private InventoryHistoryServiceImpl inventoryHistoryService;
+    private List<CaseOpeningEvent> caseOpenings;
+
+    @Setup
+    public void setUp() {
+        BenchmarkFixtures.quietLogging();
+        // Summarizing needs none of the services used for fetching
+        inventoryHistoryService = new InventoryHistoryServiceImpl(null, null, null, null);
+        caseOpenings = BenchmarkFixtures.events(events);
+    }
+
+    @Benchmark
+    public CaseOpeningSummary summarizeCaseOpenings() {
+        return inventoryHistoryService.summarizeCaseOpenings(caseOpenings);
+    }
+}
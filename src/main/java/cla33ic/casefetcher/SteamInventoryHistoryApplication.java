@@ -1,30 +1,60 @@
 package cla33ic.casefetcher;
 
 import cla33ic.casefetcher.cache.CacheService;
+import cla33ic.casefetcher.cache.HttpResponseCache;
 import cla33ic.casefetcher.cache.InMemoryCacheService;
+import cla33ic.casefetcher.cache.PriceHistoryStore;
+import cla33ic.casefetcher.config.AppConfig;
+import cla33ic.casefetcher.config.CommandLineOptions;
 import cla33ic.casefetcher.config.LoggingConfig;
+import cla33ic.casefetcher.metrics.MetricsRegistry;
+import cla33ic.casefetcher.metrics.MetricsReporter;
+import cla33ic.casefetcher.metrics.jfr.FlightRecording;
+import cla33ic.casefetcher.model.CaseOpeningColumns;
 import cla33ic.casefetcher.model.CaseOpeningEvent;
 import cla33ic.casefetcher.model.CaseOpeningSummary;
+import cla33ic.casefetcher.model.PriceSeries;
 import cla33ic.casefetcher.model.UserInput;
+import cla33ic.casefetcher.service.http.CachingHttpClientService;
 import cla33ic.casefetcher.service.http.HttpClientService;
 import cla33ic.casefetcher.service.http.HttpClientServiceImpl;
 import cla33ic.casefetcher.service.inventory.InventoryHistoryServiceImpl;
+import cla33ic.casefetcher.service.market.CasePriceResolver;
 import cla33ic.casefetcher.service.market.SteamMarketService;
 import cla33ic.casefetcher.service.market.SteamMarketServiceImpl;
 import cla33ic.casefetcher.service.parser.CaseOpeningParser;
-import cla33ic.casefetcher.service.parser.CaseOpeningParserImpl;
+import cla33ic.casefetcher.service.parser.RarityCache;
+import cla33ic.casefetcher.report.ReportWriter;
+import cla33ic.casefetcher.report.TextReportWriter;
 import cla33ic.casefetcher.util.CachedResultsHandler;
 import cla33ic.casefetcher.util.TerminalColor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class SteamInventoryHistoryApplication {
     private static final Logger logger = LoggerFactory.getLogger(SteamInventoryHistoryApplication.class);
+    // Path segments preceding the account id in profile URLs with a custom and with a numeric id
+    private static final String[] PROFILE_PATH_MARKERS = {"/id/", "/profiles/"};
 
     /**
      * Main method for the Steam Inventory History Tool application.
@@ -37,8 +67,28 @@ public class SteamInventoryHistoryApplication {
         logger.info("Default Charset: {}", Charset.defaultCharset());
 
         try {
-            UserInput userInput = getUserInput();
-            runApplication(userInput);
+            CommandLineOptions options = CommandLineOptions.parse(args);
+            // Either may be absent, so they are closed explicitly rather than as resources
+            FlightRecording recording = startFlightRecording(options);
+            try {
+                MetricsReporter metricsReporter = createMetricsReporter(options);
+                try {
+                    if (options.getBatchFile() != null) {
+                        runBatch(readBatchFile(options.getBatchFile()), options);
+                    } else {
+                        UserInput userInput = getUserInput();
+                        runApplication(userInput, options);
+                    }
+                } finally {
+                    if (metricsReporter != null) {
+                        metricsReporter.close();
+                    }
+                }
+            } finally {
+                if (recording != null) {
+                    recording.close();
+                }
+            }
         } catch (Exception e) {
             logger.error("An error occurred during application execution", e);
             System.out.println(TerminalColor.colorize("An error occurred: " + e.getMessage(), TerminalColor.RED));
@@ -48,6 +98,29 @@ public class SteamInventoryHistoryApplication {
         logger.info("Steam Inventory History Application completed");
     }
 
+    /**
+     * @return a flight recording of the run, or {@code null} if it is not profiled
+     */
+    private static FlightRecording startFlightRecording(CommandLineOptions options) throws IOException {
+        if (!options.isProfile()) {
+            return null;
+        }
+        String startTime = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        return FlightRecording.start(Paths.get(AppConfig.PROFILE_FILE_PREFIX + startTime + ".jfr"));
+    }
+
+    /**
+     * @return a reporter writing the metrics of the run in the requested format, or {@code null} if none was requested
+     */
+    private static MetricsReporter createMetricsReporter(CommandLineOptions options) {
+        if (options.getMetricsFormat() == null) {
+            return null;
+        }
+        Path file = Paths.get(AppConfig.METRICS_FILE + "." + options.getMetricsFormat().getFileExtension());
+        return new MetricsReporter(MetricsRegistry.global(), options.getMetricsFormat(), file,
+                options.getMetricsIntervalSeconds());
+    }
+
     /**
      * Get the user input for the Steam Inventory History Tool.
      * @return the user input
@@ -61,25 +134,157 @@ public class SteamInventoryHistoryApplication {
 
         System.out.print("Enter your Steam profile URL: ");
         String profileUrl = reader.readLine().trim();
-        String baseUrl = profileUrl + "/inventoryhistory/";
 
         System.out.print("Enter your Steam cookie: ");
         String cookie = reader.readLine().trim();
 
+        return toUserInput(profileUrl, cookie);
+    }
+
+    /**
+     * Reads the accounts of a batch file: one profile URL and cookie per line, separated by whitespace.
+     * Empty lines and lines starting with '#' are ignored.
+     * @param batchFile the batch file
+     * @return the accounts in file order
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a line lacks a cookie or two lines are for the same account
+     */
+    private static List<UserInput> readBatchFile(Path batchFile) throws IOException {
+        List<UserInput> accounts = new ArrayList<>();
+        Set<String> accountIds = new HashSet<>();
+        for (String line : Files.readAllLines(batchFile)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split("\\s+", 2);
+            if (parts.length < 2) {
+                throw new IllegalArgumentException("Missing cookie for profile " + parts[0] + " in " + batchFile);
+            }
+            UserInput account = toUserInput(parts[0], parts[1]);
+            String accountId = extractAccountId(account.getBaseUrl());
+            // Accounts with the same id would share, and concurrently write, the same cache and result files
+            if (!accountIds.add(accountId)) {
+                throw new IllegalArgumentException("Duplicate account " + accountId + " for profile " + parts[0] + " in " + batchFile);
+            }
+            accounts.add(account);
+        }
+        if (accounts.isEmpty()) {
+            throw new IllegalArgumentException("No accounts found in " + batchFile);
+        }
+        return accounts;
+    }
+
+    private static UserInput toUserInput(String profileUrl, String cookie) {
         if (profileUrl.isEmpty() || cookie.isEmpty()) {
             throw new IllegalArgumentException("Profile URL and cookie must not be empty");
         }
-
-        return new UserInput(baseUrl, cookie);
+        return new UserInput(profileUrl + "/inventoryhistory/", cookie);
     }
 
     /**
      * Run the Steam Inventory History Tool application.
      * @param userInput the user input
+     * @param options the command line options
      */
-    private static void runApplication(UserInput userInput) {
+    private static void runApplication(UserInput userInput, CommandLineOptions options) throws IOException {
         System.out.println(TerminalColor.colorize("Processing inventory history...", TerminalColor.YELLOW));
 
+        RarityCache.global().load(Paths.get(AppConfig.RARITY_CACHE_FILE));
+        SteamMarketService steamMarketService = createMarketService(userInput.getCookie());
+        AccountAnalysis analysis = analyzeAccount(userInput, options, steamMarketService);
+        RarityCache.global().save(Paths.get(AppConfig.RARITY_CACHE_FILE));
+
+        if (analysis.events().isEmpty()) {
+            System.out.println(TerminalColor.colorize("No case opening events found. Make sure your inventory history is public.", TerminalColor.RED));
+            return;
+        }
+        if (analysis.summary() == null) {
+            System.out.println(TerminalColor.colorize("Failed to generate summary. Please check the log file for more details.", TerminalColor.RED));
+            return;
+        }
+
+        System.out.println(TerminalColor.colorize("\nAnalysis Complete!", TerminalColor.GREEN));
+        System.out.println(analysis.summary());
+
+        System.out.println(TerminalColor.colorize("\nDetailed Case Opening Events:", TerminalColor.BLUE));
+        printEvents(analysis.events(), options.getConsoleLimit());
+
+        System.out.println(TerminalColor.colorize("\nThank you for using the Steam Inventory History Tool!", TerminalColor.GREEN));
+    }
+
+    /**
+     * Analyzes several accounts concurrently, each on its own (virtual, where available) thread.
+     * All accounts share one market service, so every case price history is fetched at most once,
+     * and all requests share the per-host rate limiters of the HTTP layer. Each account writes its own results.
+     * @param accounts the accounts to analyze
+     * @param options the command line options
+     */
+    private static void runBatch(List<UserInput> accounts, CommandLineOptions options) throws IOException {
+        System.out.println(TerminalColor.colorize("Processing the inventory histories of " + accounts.size() + " accounts...", TerminalColor.YELLOW));
+
+        RarityCache.global().load(Paths.get(AppConfig.RARITY_CACHE_FILE));
+        // Market listings are public, the first account's cookie is used for all of them
+        SteamMarketService steamMarketService = createMarketService(accounts.get(0).getCookie());
+
+        ExecutorService executor = newAccountExecutor();
+        List<Future<AccountAnalysis>> analyses = new ArrayList<>();
+        for (UserInput account : accounts) {
+            analyses.add(executor.submit(() -> analyzeAccount(account, options, steamMarketService)));
+        }
+        executor.shutdown();
+
+        int failed = 0;
+        for (int i = 0; i < accounts.size(); i++) {
+            String accountId = extractAccountId(accounts.get(i).getBaseUrl());
+            try {
+                AccountAnalysis analysis = analyses.get(i).get();
+                if (analysis.events().isEmpty()) {
+                    System.out.println(TerminalColor.colorize(accountId + ": no case opening events found", TerminalColor.RED));
+                } else if (analysis.summary() == null) {
+                    System.out.println(TerminalColor.colorize(accountId + ": failed to generate summary", TerminalColor.RED));
+                } else {
+                    System.out.println(TerminalColor.colorize(accountId + ": " + analysis.summary().totalCases()
+                            + " cases opened, results saved", TerminalColor.GREEN));
+                }
+            } catch (ExecutionException e) {
+                failed++;
+                logger.error("Failed to analyze account {}", accountId, e.getCause());
+                System.out.println(TerminalColor.colorize(accountId + ": failed: " + e.getCause().getMessage(), TerminalColor.RED));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+                throw new IOException("Interrupted while waiting for the account analyses", e);
+            }
+        }
+        RarityCache.global().save(Paths.get(AppConfig.RARITY_CACHE_FILE));
+
+        System.out.println(TerminalColor.colorize("\nAnalyzed " + (accounts.size() - failed) + " of " + accounts.size()
+                + " accounts.", failed == 0 ? TerminalColor.GREEN : TerminalColor.YELLOW));
+    }
+
+    private static SteamMarketService createMarketService(String cookie) {
+        // Listing pages are kept on disk, so that unchanged pages are not downloaded again in later runs
+        HttpResponseCache responseCache = new HttpResponseCache(Paths.get(AppConfig.HTTP_CACHE_DIR),
+                HttpResponseCache.parseRules(AppConfig.HTTP_CACHE_FRESHNESS));
+        responseCache.prune(Duration.ofDays(AppConfig.HTTP_CACHE_MAX_AGE_DAYS), AppConfig.HTTP_CACHE_MAX_BYTES);
+        HttpClientService httpClientService = new CachingHttpClientService(new HttpClientServiceImpl(), responseCache);
+        httpClientService.setCookie(cookie);
+
+        CacheService<String, PriceSeries> cacheService = new InMemoryCacheService<>("price_history");
+        PriceHistoryStore priceHistoryStore = new PriceHistoryStore(Paths.get(AppConfig.PRICE_HISTORY_DIR));
+        return new SteamMarketServiceImpl(httpClientService, cacheService, priceHistoryStore, cookie);
+    }
+
+    /**
+     * Fetches the new events of one account, merges them with its cached events and saves its results.
+     * @param userInput the account
+     * @param options the command line options
+     * @param steamMarketService the market service used to price the events
+     * @return all events of the account and their summary, which is {@code null} if there are no events or it failed
+     */
+    private static AccountAnalysis analyzeAccount(UserInput userInput, CommandLineOptions options,
+                                                  SteamMarketService steamMarketService) throws IOException {
         // Extract account id from the profile URL. E.g., from "https://steamcommunity.com/id/cla33ic" extract "cla33ic"
         String accountId = extractAccountId(userInput.getBaseUrl());
 
@@ -93,47 +298,68 @@ public class SteamInventoryHistoryApplication {
         HttpClientService httpClientService = new HttpClientServiceImpl();
         httpClientService.setCookie(userInput.getCookie());
 
-        // Updated the cache type to use TreeMap<LocalDate, Double> as required.
-        CacheService<String, java.util.TreeMap<java.time.LocalDate, Double>> cacheService = new InMemoryCacheService<>();
-        SteamMarketService steamMarketService = new SteamMarketServiceImpl(httpClientService, cacheService, userInput.getCookie());
-        CaseOpeningParser caseOpeningParser = new CaseOpeningParserImpl(steamMarketService);
-        InventoryHistoryServiceImpl inventoryHistoryService = new InventoryHistoryServiceImpl(httpClientService, caseOpeningParser, userInput.getCookie());
+        CaseOpeningParser caseOpeningParser = options.getParserType().create();
+        CasePriceResolver casePriceResolver = new CasePriceResolver(steamMarketService);
+        InventoryHistoryServiceImpl inventoryHistoryService = new InventoryHistoryServiceImpl(httpClientService, caseOpeningParser, casePriceResolver, userInput.getCookie());
 
         List<CaseOpeningEvent> newEvents;
         if (latestCachedDate != null) {
-            logger.info("Cached events found. Latest cached event date: {}", latestCachedDate);
+            logger.info("Cached events found for account {}. Latest cached event date: {}", accountId, latestCachedDate);
             newEvents = inventoryHistoryService.fetchInventoryHistory(userInput.getBaseUrl(), latestCachedDate);
         } else {
-            logger.info("No cached events found. Fetching complete inventory history.");
+            logger.info("No cached events found for account {}. Fetching complete inventory history.", accountId);
             newEvents = inventoryHistoryService.fetchInventoryHistory(userInput.getBaseUrl());
         }
 
         // Merge cached events with new events (avoiding duplicates)
         List<CaseOpeningEvent> allEvents = CachedResultsHandler.mergeEvents(cachedEvents, newEvents);
-
         if (allEvents.isEmpty()) {
-            System.out.println(TerminalColor.colorize("No case opening events found. Make sure your inventory history is public.", TerminalColor.RED));
-            return;
+            return new AccountAnalysis(allEvents, null);
         }
 
-        System.out.println(TerminalColor.colorize("Analyzing case openings...", TerminalColor.YELLOW));
-        CaseOpeningSummary summary = inventoryHistoryService.summarizeCaseOpenings(allEvents);
-
-        if (summary == null) {
-            System.out.println(TerminalColor.colorize("Failed to generate summary. Please check the log file for more details.", TerminalColor.RED));
-            return;
+        // Summarize the columns, re-pricing them in place if requested, instead of rebuilding the event list
+        CaseOpeningColumns columns = CaseOpeningColumns.of(allEvents);
+        if (options.isReprice()) {
+            casePriceResolver.reprice(columns);
+            allEvents = columns.toEvents();
         }
+        CaseOpeningSummary summary = inventoryHistoryService.summarizeCaseOpenings(columns, options.getKeyPrice());
+        if (summary != null) {
+            // Save merged results to the report files and append the new events to the event log
+            CachedResultsHandler.saveReport(accountId, allEvents, summary, options.getReportFormat());
+            CachedResultsHandler.appendCachedEvents(accountId, newEvents);
+        }
+        return new AccountAnalysis(allEvents, summary);
+    }
 
-        System.out.println(TerminalColor.colorize("\nAnalysis Complete!", TerminalColor.GREEN));
-        System.out.println(summary);
-
-        // Save merged results to fixed file paths (both human-readable and JSON cache)
-        CachedResultsHandler.saveCachedEvents(accountId, allEvents, summary);
-
-        System.out.println(TerminalColor.colorize("\nDetailed Case Opening Events:", TerminalColor.BLUE));
-        allEvents.forEach(System.out::println);
+    /**
+     * Creates an executor that runs each task on its own virtual thread. The application still targets Java 17,
+     * so on older runtimes it falls back to a thread per task from a cached pool.
+     */
+    private static ExecutorService newAccountExecutor() {
+        try {
+            MethodHandle factory = MethodHandles.publicLookup().findStatic(Executors.class,
+                    "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+            return (ExecutorService) factory.invoke();
+        } catch (Throwable e) {
+            logger.info("Virtual threads are not available, analyzing the accounts on platform threads");
+            return Executors.newCachedThreadPool();
+        }
+    }
 
-        System.out.println(TerminalColor.colorize("\nThank you for using the Steam Inventory History Tool!", TerminalColor.GREEN));
+    /**
+     * Prints the events to the console through one buffered writer instead of a flush per line.
+     * @param events the events to print
+     * @param limit the maximum number of events to print, negative for all
+     */
+    private static void printEvents(List<CaseOpeningEvent> events, int limit) throws IOException {
+        Writer console = new BufferedWriter(new OutputStreamWriter(System.out, System.out.charset()), 1 << 16);
+        ReportWriter reportWriter = new TextReportWriter(console);
+        int printed = reportWriter.writeEvents(events, limit);
+        reportWriter.flush();
+        if (printed < events.size()) {
+            System.out.println("... and " + (events.size() - printed) + " more events, see the results file for all events.");
+        }
     }
 
     /**
@@ -141,13 +367,22 @@ public class SteamInventoryHistoryApplication {
      * Assumes the URL contains "/id/{accountId}/inventoryhistory/"
      */
     private static String extractAccountId(String baseUrl) {
-        // Example: "https://steamcommunity.com/id/cla33ic/inventoryhistory/"
-        String marker = "/id/";
-        int start = baseUrl.indexOf(marker);
-        if (start == -1) return "default";
-        start += marker.length();
-        int end = baseUrl.indexOf("/", start);
-        if (end == -1) return baseUrl.substring(start);
-        return baseUrl.substring(start, end);
+        // Examples: "https://steamcommunity.com/id/cla33ic/inventoryhistory/",
+        // "https://steamcommunity.com/profiles/76561197960287930/inventoryhistory/"
+        for (String marker : PROFILE_PATH_MARKERS) {
+            int start = baseUrl.indexOf(marker);
+            if (start == -1) continue;
+            start += marker.length();
+            int end = baseUrl.indexOf("/", start);
+            if (end == -1) return baseUrl.substring(start);
+            return baseUrl.substring(start, end);
+        }
+        return "default";
+    }
+
+    /**
+     * All events of an account and their summary.
+     */
+    private record AccountAnalysis(List<CaseOpeningEvent> events, CaseOpeningSummary summary) {
     }
 }
@@ -1,6 +1,7 @@
 package cla33ic.casefetcher.cache;
 
 import java.util.Optional;
+import java.util.function.Function;
 
 /**
  * Interface for a cache service.
@@ -11,4 +12,16 @@ public interface CacheService<K, V> {
     void put(K key, V value);
     Optional<V> get(K key);
     void remove(K key);
-}
\ No newline at end of file
+
+    /**
+     * Returns the cached value of the key, or loads, caches and returns it. Concurrent calls for the same missing
+     * key share a single load; if it throws, the exception is rethrown to all of them and nothing is cached.
+     * @param loader computes the value of a missing key; must not return {@code null}
+     */
+    V get(K key, Function<? super K, ? extends V> loader);
+
+    /**
+     * @return the statistics of this cache since it was created
+     */
+    CacheStats getStats();
+}
@@ -0,0 +1,30 @@
+package cla33ic.casefetcher.cache;
+
+/**
+ * Snapshot of a cache's statistics.
+ * @param hits lookups that found a live entry
+ * @param misses lookups that found no entry or an expired one
+ * @param loads values computed by loaders
+ * @param loadFailures loads that threw an exception
+ * @param totalLoadNanos time spent in loaders
+ * @param evictions entries removed to stay within the size bound
+ * @param expirations entries removed because they expired
+ * @param size entries currently cached
+ */
+public record CacheStats(long hits, long misses, long loads, long loadFailures, long totalLoadNanos,
+                         long evictions, long expirations, int size) {
+    /**
+     * @return the share of lookups that were hits, 1 if there were none
+     */
+    public double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 1.0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d hits, %d misses (%.1f%% hit rate), %d loads (%d failed, %.1f ms), "
+                        + "%d evictions, %d expirations, %d entries",
+                hits, misses, hitRate() * 100, loads, loadFailures, totalLoadNanos / 1e6, evictions, expirations, size);
+    }
+}
@@ -0,0 +1,319 @@
+package cla33ic.casefetcher.cache;
+
+import cla33ic.casefetcher.config.AppConfig;
+import cla33ic.casefetcher.model.CaseOpeningEvent;
+import cla33ic.casefetcher.model.SymbolTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary log of an account's case opening events.
+ * <p>
+ * The log is a directory of numbered segments. Every segment starts with a header (magic, version, flags,
+ * name count, record count, CRC32 of the body), followed by the names it introduces and fixed-width records
+ * that reference names by index. Names are numbered across all segments in order. A compacted segment
+ * supersedes every segment before it, so an interrupted compaction never duplicates events.
+ */
+public class EventLog {
+    private static final Logger logger = LoggerFactory.getLogger(EventLog.class);
+    private static final int MAGIC = 0x4353454C; // "CSEL"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 28;
+    // epochSecond, case, key, item, rarity, price, flags
+    private static final int RECORD_SIZE = Long.BYTES + 4 * Integer.BYTES + Double.BYTES + Integer.BYTES;
+    private static final int SEGMENT_COMPACTED = 1;
+    private static final int EVENT_RENTAL = 1;
+    private static final int NO_NAME = -1;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    // Symbol id of each name of the log, and log name id + 1 of each symbol (0 if the log does not know it yet)
+    private int[] nameSymbols = new int[64];
+    private int[] symbolNames = new int[0];
+    private int nameCount;
+    private int segmentCount;
+    private long lastSegmentNumber;
+    private boolean scanned;
+
+    public EventLog(Path directory) {
+        this.directory = directory;
+    }
+
+    public boolean exists() {
+        return Files.isDirectory(directory);
+    }
+
+    /**
+     * Reads all events of the log by mapping its segments.
+     * @return the events in the order they were appended
+     * @throws IOException if a segment cannot be read
+     */
+    public synchronized List<CaseOpeningEvent> readAll() throws IOException {
+        List<CaseOpeningEvent> events = new ArrayList<>();
+        scan(events);
+        return events;
+    }
+
+    /**
+     * Appends the given events as a new segment, compacting the log once it has too many segments.
+     * @param events the events to append
+     * @throws IOException if the segment cannot be written
+     */
+    public synchronized void append(List<CaseOpeningEvent> events) throws IOException {
+        if (!scanned) {
+            scan(null);
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+        writeSegment(events, false);
+        if (segmentCount > AppConfig.EVENT_LOG_MAX_SEGMENTS) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrites the whole log into a single segment and deletes the segments it supersedes.
+     * @throws IOException if the log cannot be read or written
+     */
+    public synchronized void compact() throws IOException {
+        List<CaseOpeningEvent> events = readAll();
+        clearNames();
+        writeSegment(events, true);
+        for (Path segment : listSegments()) {
+            if (segmentNumber(segment) < lastSegmentNumber) {
+                Files.delete(segment);
+            }
+        }
+        segmentCount = 1;
+        logger.info("Compacted event log {} into a single segment of {} events", directory, events.size());
+    }
+
+    private void scan(List<CaseOpeningEvent> events) throws IOException {
+        clearNames();
+        segmentCount = 0;
+        lastSegmentNumber = 0;
+
+        List<Path> segments = listSegments();
+        for (int i = 0; i < segments.size(); i++) {
+            Path segment = segments.get(i);
+            lastSegmentNumber = segmentNumber(segment);
+            boolean valid;
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                valid = readSegment(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), events);
+            }
+            if (!valid) {
+                // Later segments may reference names introduced by the broken one, so they are dropped as well
+                logger.warn("Discarding corrupt event log segment {} and {} later segments", segment, segments.size() - i - 1);
+                for (Path discarded : segments.subList(i, segments.size())) {
+                    Files.move(discarded, discarded.resolveSibling(discarded.getFileName() + ".corrupt"),
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+                break;
+            }
+            segmentCount++;
+        }
+        scanned = true;
+    }
+
+    /**
+     * Reads a segment into the names of the log and, unless {@code events} is {@code null}, the events. The whole
+     * segment is validated first, so that a corrupt one leaves the names and events of the earlier ones untouched.
+     * @return whether the segment is valid
+     */
+    private boolean readSegment(MappedByteBuffer buffer, List<CaseOpeningEvent> events) {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            return false;
+        }
+        int flags = buffer.getInt(8);
+        int segmentNameCount = buffer.getInt(12);
+        int recordCount = buffer.getInt(16);
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.slice(HEADER_SIZE, buffer.limit() - HEADER_SIZE));
+        if (checksum.getValue() != buffer.getLong(20) || segmentNameCount < 0 || recordCount < 0) {
+            return false;
+        }
+
+        buffer.position(HEADER_SIZE);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < segmentNameCount; i++) {
+            if (buffer.remaining() < Short.BYTES) {
+                return false;
+            }
+            int length = Short.toUnsignedInt(buffer.getShort());
+            if (buffer.remaining() < length) {
+                return false;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            names.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        if (buffer.remaining() != (long) recordCount * RECORD_SIZE) {
+            return false;
+        }
+        boolean compacted = (flags & SEGMENT_COMPACTED) != 0;
+        int visibleNames = (compacted ? 0 : nameCount) + names.size();
+        int recordsStart = buffer.position();
+        for (int i = 0; i < recordCount; i++) {
+            int offset = recordsStart + i * RECORD_SIZE + Long.BYTES;
+            for (int field = 0; field < 4; field++) {
+                int id = buffer.getInt(offset + field * Integer.BYTES);
+                if (id != NO_NAME && (id < 0 || id >= visibleNames)) {
+                    return false;
+                }
+            }
+        }
+
+        if (compacted) {
+            clearNames();
+            segmentCount = 0;
+            if (events != null) {
+                events.clear();
+            }
+        }
+        for (String name : names) {
+            addName(SymbolTable.intern(name));
+        }
+        if (events == null) {
+            return true;
+        }
+        for (int i = 0; i < recordCount; i++) {
+            long epochSecond = buffer.getLong();
+            int caseId = buffer.getInt();
+            int keyId = buffer.getInt();
+            int itemId = buffer.getInt();
+            int rarityId = buffer.getInt();
+            double casePrice = buffer.getDouble();
+            int eventFlags = buffer.getInt();
+            events.add(new CaseOpeningEvent(epochSecond, symbolOf(caseId), symbolOf(keyId), symbolOf(itemId),
+                    symbolOf(rarityId), casePrice, (eventFlags & EVENT_RENTAL) != 0));
+        }
+        return true;
+    }
+
+    private void writeSegment(List<CaseOpeningEvent> events, boolean compacted) throws IOException {
+        try {
+            int firstNewName = nameCount;
+            ByteBuffer records = ByteBuffer.allocate(events.size() * RECORD_SIZE);
+            for (CaseOpeningEvent event : events) {
+                records.putLong(event.epochSecond())
+                        .putInt(nameId(event.caseId()))
+                        .putInt(nameId(event.keyId()))
+                        .putInt(nameId(event.itemId()))
+                        .putInt(nameId(event.rarityId()))
+                        .putDouble(event.casePrice())
+                        .putInt(event.isRental() ? EVENT_RENTAL : 0);
+            }
+
+            List<byte[]> newNames = new ArrayList<>();
+            int namesSize = 0;
+            for (int id = firstNewName; id < nameCount; id++) {
+                byte[] bytes = SymbolTable.name(nameSymbols[id]).getBytes(StandardCharsets.UTF_8);
+                newNames.add(bytes);
+                namesSize += Short.BYTES + bytes.length;
+            }
+
+            ByteBuffer segment = ByteBuffer.allocate(HEADER_SIZE + namesSize + records.capacity());
+            segment.position(HEADER_SIZE);
+            for (byte[] bytes : newNames) {
+                segment.putShort((short) bytes.length).put(bytes);
+            }
+            segment.put(records.flip());
+            CRC32 checksum = new CRC32();
+            checksum.update(segment.slice(HEADER_SIZE, segment.capacity() - HEADER_SIZE));
+            segment.putInt(0, MAGIC)
+                    .putInt(4, VERSION)
+                    .putInt(8, compacted ? SEGMENT_COMPACTED : 0)
+                    .putInt(12, newNames.size())
+                    .putInt(16, events.size())
+                    .putLong(20, checksum.getValue());
+            segment.rewind();
+
+            // Segments only become visible once completely written
+            Files.createDirectories(directory);
+            long segmentNumber = lastSegmentNumber + 1;
+            Path temporary = directory.resolve(SEGMENT_PREFIX + "next.tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (segment.hasRemaining()) {
+                    channel.write(segment);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, segmentNumber, SEGMENT_SUFFIX)),
+                    StandardCopyOption.ATOMIC_MOVE);
+            lastSegmentNumber = segmentNumber;
+            segmentCount++;
+        } catch (IOException | RuntimeException e) {
+            // Names assigned for the failed segment were never persisted
+            scanned = false;
+            throw e;
+        }
+    }
+
+    private int nameId(int symbol) {
+        if (symbol == SymbolTable.NO_SYMBOL) {
+            return NO_NAME;
+        }
+        if (symbol < symbolNames.length && symbolNames[symbol] != 0) {
+            return symbolNames[symbol] - 1;
+        }
+        return addName(symbol);
+    }
+
+    private int addName(int symbol) {
+        if (nameCount == nameSymbols.length) {
+            nameSymbols = Arrays.copyOf(nameSymbols, nameCount * 2);
+        }
+        if (symbol >= symbolNames.length) {
+            symbolNames = Arrays.copyOf(symbolNames, Math.max(symbol + 1, symbolNames.length * 2));
+        }
+        nameSymbols[nameCount] = symbol;
+        symbolNames[symbol] = nameCount + 1;
+        return nameCount++;
+    }
+
+    private void clearNames() {
+        nameCount = 0;
+        Arrays.fill(symbolNames, 0);
+    }
+
+    private int symbolOf(int id) {
+        return id == NO_NAME ? SymbolTable.NO_SYMBOL : nameSymbols[id];
+    }
+
+    private List<Path> listSegments() throws IOException {
+        if (!exists()) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String fileName = file.getFileName().toString();
+                        return fileName.startsWith(SEGMENT_PREFIX) && fileName.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long segmentNumber(Path segment) {
+        String fileName = segment.getFileName().toString();
+        return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,305 @@
+package cla33ic.casefetcher.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of HTTP response bodies and their validators (ETag and Last-Modified), one body and one
+ * metadata file per URL. Only URLs matching a freshness rule are cached; within its freshness a stored
+ * response is served without a request, afterwards it has to be revalidated.
+ * <p>
+ * A response is first staged in a body file of its own and only committed once its reader has accepted it.
+ * Committing replaces the metadata file, which names the body file, in one atomic move, so that a reader
+ * never sees a body together with the validators of another one. Replaced bodies are left for
+ * {@link #prune}, as a concurrent reader may still be about to open them.
+ */
+public class HttpResponseCache {
+    private static final Logger logger = LoggerFactory.getLogger(HttpResponseCache.class);
+    private static final String METADATA_SUFFIX = ".properties";
+    private static final String BODY_SUFFIX = ".body";
+    // Files not referenced by any metadata are only deleted after this time, as they may be in use or being staged
+    private static final Duration ORPHAN_GRACE_PERIOD = Duration.ofHours(1);
+
+    private final Path directory;
+    private final List<FreshnessRule> rules;
+
+    public HttpResponseCache(Path directory, List<FreshnessRule> rules) {
+        this.directory = directory;
+        this.rules = List.copyOf(rules);
+    }
+
+    /**
+     * @return whether responses for the URL are cached at all
+     */
+    public boolean isCacheable(String url) {
+        return freshnessOf(url).isPresent();
+    }
+
+    /**
+     * @return the stored response for the URL, empty if there is none or it cannot be read
+     */
+    public Optional<Entry> lookup(String url) {
+        Path metadataFile = metadataFileFor(url);
+        if (!Files.exists(metadataFile)) {
+            return Optional.empty();
+        }
+        try {
+            Entry entry = readMetadata(metadataFile);
+            if (!url.equals(entry.url()) || !Files.exists(entry.bodyFile())) {
+                return Optional.empty();
+            }
+            return Optional.of(entry);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring unreadable cached response for {}: {}", url, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return whether the entry is still within the freshness of its URL's rule
+     */
+    public boolean isFresh(Entry entry) {
+        return freshnessOf(entry.url())
+                .map(freshness -> System.currentTimeMillis() - entry.storedAtMillis() < freshness.toMillis())
+                .orElse(false);
+    }
+
+    /**
+     * Writes a response to a new body file, copying the body to disk as it is read. The response is not
+     * served until it is {@link #commit committed}; a staged response that is not committed has to be
+     * {@link #discard discarded}.
+     * @return the staged entry
+     * @throws IOException if the response cannot be written
+     */
+    public Entry stage(String url, String etag, String lastModified, Reader body) throws IOException {
+        Files.createDirectories(directory);
+        Path bodyFile = directory.resolve(keyOf(url) + "-" + UUID.randomUUID() + BODY_SUFFIX);
+        try (Writer writer = Files.newBufferedWriter(bodyFile, StandardCharsets.UTF_8)) {
+            body.transferTo(writer);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(bodyFile);
+            throw e;
+        }
+        return new Entry(url, etag, lastModified, System.currentTimeMillis(), bodyFile);
+    }
+
+    /**
+     * Makes a staged response the stored response for its URL, replacing any earlier one.
+     * @throws IOException if the metadata cannot be written
+     */
+    public void commit(Entry staged) throws IOException {
+        writeMetadata(staged);
+    }
+
+    /**
+     * Deletes a staged response that was not accepted.
+     */
+    public void discard(Entry staged) {
+        try {
+            Files.deleteIfExists(staged.bodyFile());
+        } catch (IOException e) {
+            logger.warn("Failed to delete discarded response {}: {}", staged.bodyFile(), e.getMessage());
+        }
+    }
+
+    /**
+     * Marks a stored response as revalidated by a 304, which restarts its freshness.
+     * @return the revalidated entry
+     * @throws IOException if the metadata cannot be written
+     */
+    public Entry revalidate(Entry entry, String etag, String lastModified) throws IOException {
+        Entry revalidated = new Entry(entry.url(), etag != null ? etag : entry.etag(),
+                lastModified != null ? lastModified : entry.lastModified(), System.currentTimeMillis(), entry.bodyFile());
+        writeMetadata(revalidated);
+        return revalidated;
+    }
+
+    /**
+     * Deletes the responses stored or revalidated longer than the maximum age ago, then the least recently
+     * stored ones until the bodies take up at most the maximum size, and finally the files no response refers to.
+     * Failures are logged, as the cache stays usable without pruning.
+     */
+    public void prune(Duration maxAge, long maxBytes) {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            List<Entry> entries = new ArrayList<>();
+            List<Path> otherFiles = new ArrayList<>();
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(directory)) {
+                files = listing.toList();
+            }
+            for (Path file : files) {
+                if (!file.getFileName().toString().endsWith(METADATA_SUFFIX)) {
+                    otherFiles.add(file);
+                    continue;
+                }
+                try {
+                    entries.add(readMetadata(file));
+                } catch (IOException | RuntimeException e) {
+                    Files.deleteIfExists(file);
+                }
+            }
+
+            entries.sort(Comparator.comparingLong(Entry::storedAtMillis).reversed());
+            long totalBytes = 0;
+            int removed = 0;
+            Set<Path> referencedBodies = new HashSet<>();
+            for (Entry entry : entries) {
+                long size = Files.exists(entry.bodyFile()) ? Files.size(entry.bodyFile()) : 0;
+                if (now - entry.storedAtMillis() > maxAge.toMillis() || totalBytes + size > maxBytes) {
+                    // The metadata goes first, so that the response is never served without its body
+                    Files.deleteIfExists(metadataFileFor(entry.url()));
+                    Files.deleteIfExists(entry.bodyFile());
+                    removed++;
+                } else {
+                    totalBytes += size;
+                    referencedBodies.add(entry.bodyFile().getFileName());
+                }
+            }
+
+            FileTime orphanCutoff = FileTime.fromMillis(now - ORPHAN_GRACE_PERIOD.toMillis());
+            for (Path file : otherFiles) {
+                if (!referencedBodies.contains(file.getFileName()) && Files.isRegularFile(file)
+                        && Files.getLastModifiedTime(file).compareTo(orphanCutoff) < 0) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            logger.info("Pruned {} cached responses, keeping {} with {} KiB of bodies in {}",
+                    removed, entries.size() - removed, totalBytes / 1024, directory);
+        } catch (IOException e) {
+            logger.warn("Failed to prune the HTTP response cache in {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private Entry readMetadata(Path metadataFile) throws IOException {
+        Properties metadata = new Properties();
+        try (Reader reader = Files.newBufferedReader(metadataFile, StandardCharsets.UTF_8)) {
+            metadata.load(reader);
+        }
+        String url = metadata.getProperty("url");
+        if (url == null) {
+            throw new IOException("Missing URL in " + metadataFile);
+        }
+        String bodyFileName = metadata.getProperty("body");
+        if (bodyFileName == null) {
+            throw new IOException("Missing body file in " + metadataFile);
+        }
+        return new Entry(url, metadata.getProperty("etag"), metadata.getProperty("lastModified"),
+                Long.parseLong(metadata.getProperty("storedAt")), directory.resolve(bodyFileName));
+    }
+
+    private void writeMetadata(Entry entry) throws IOException {
+        Properties metadata = new Properties();
+        metadata.setProperty("url", entry.url());
+        metadata.setProperty("body", entry.bodyFile().getFileName().toString());
+        metadata.setProperty("storedAt", Long.toString(entry.storedAtMillis()));
+        if (entry.etag() != null) {
+            metadata.setProperty("etag", entry.etag());
+        }
+        if (entry.lastModified() != null) {
+            metadata.setProperty("lastModified", entry.lastModified());
+        }
+        Path tempFile = Files.createTempFile(directory, "meta", ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                metadata.store(writer, null);
+            }
+            Files.move(tempFile, metadataFileFor(entry.url()), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private Optional<Duration> freshnessOf(String url) {
+        return rules.stream()
+                .filter(rule -> rule.urlPattern().matcher(url).find())
+                .map(FreshnessRule::freshness)
+                .findFirst();
+    }
+
+    private Path metadataFileFor(String url) {
+        return directory.resolve(keyOf(url) + METADATA_SUFFIX);
+    }
+
+    private static String keyOf(String url) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Parses freshness rules of the form {@code pattern=duration,pattern=duration}, e.g.
+     * {@code /market/listings/=PT6H}. The pattern is a regular expression searched for in the URL and the
+     * duration is in ISO-8601 format; the first matching rule applies.
+     * @throws IllegalArgumentException if a rule is malformed
+     */
+    public static List<FreshnessRule> parseRules(String rules) {
+        List<FreshnessRule> parsed = new ArrayList<>();
+        for (String rule : rules.split(",")) {
+            if (rule.isBlank()) {
+                continue;
+            }
+            int separator = rule.lastIndexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid HTTP cache freshness rule: " + rule);
+            }
+            try {
+                parsed.add(new FreshnessRule(Pattern.compile(rule.substring(0, separator).trim()),
+                        Duration.parse(rule.substring(separator + 1).trim())));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid HTTP cache freshness rule: " + rule, e);
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * How long responses for URLs matching the pattern are served without revalidation.
+     */
+    public record FreshnessRule(Pattern urlPattern, Duration freshness) {
+    }
+
+    /**
+     * A stored response.
+     * @param storedAtMillis when the response was stored or last revalidated, in epoch milliseconds
+     */
+    public record Entry(String url, String etag, String lastModified, long storedAtMillis, Path bodyFile) {
+        public Reader openBody() throws IOException {
+            return Files.newBufferedReader(bodyFile, StandardCharsets.UTF_8);
+        }
+
+        public String readBody() throws IOException {
+            return Files.readString(bodyFile, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -1,65 +1,252 @@
 package cla33ic.casefetcher.cache;
 
 import cla33ic.casefetcher.config.AppConfig;
+import cla33ic.casefetcher.metrics.Counter;
+import cla33ic.casefetcher.metrics.LatencyHistogram;
+import cla33ic.casefetcher.metrics.MetricsRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.time.LocalDateTime;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
-public class InMemoryCacheService<K, V> implements CacheService<K, V> {
+/**
+ * Size-bounded cache evicting the least recently used entries, whose entries expire a fixed time after they were
+ * written. Expired entries are dropped when they are looked up and by a background sweeper.
+ * <p>
+ * Hits, misses, loads, evictions and expirations are counted in the global {@link MetricsRegistry}, labelled with
+ * the cache's name; caches of the same name share their statistics.
+ */
+public final class InMemoryCacheService<K, V> implements CacheService<K, V> {
     private static final Logger logger = LoggerFactory.getLogger(InMemoryCacheService.class);
 
-    private final Map<K, CacheEntry<V>> cache;
+    // Sweeps the expired entries of all caches
+    private static final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cache-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // In access order, guarded by this
+    private final Map<K, CacheEntry<V>> entries;
+    // Loads in flight, so that concurrent misses on a key share one load
+    private final Map<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final long expireAfterWriteNanos;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter loadFailures;
+    private final Counter evictions;
+    private final Counter expirations;
+    private final LatencyHistogram loadTime;
 
     public InMemoryCacheService() {
-        this.cache = new ConcurrentHashMap<>();
+        this("default");
+    }
+
+    public InMemoryCacheService(String name) {
+        this(name, AppConfig.CACHE_MAX_ENTRIES, TimeUnit.HOURS.toMillis(AppConfig.CACHE_EXPIRATION_HOURS));
+    }
+
+    /**
+     * @param name the name of the cache in its metrics
+     * @param maxEntries the number of entries above which the least recently used one is evicted
+     * @param expireAfterWriteMillis the time after which an entry expires
+     */
+    public InMemoryCacheService(String name, int maxEntries, long expireAfterWriteMillis) {
+        MetricsRegistry metrics = MetricsRegistry.global();
+        this.hits = metrics.counter("casefetcher_cache_hits_total", "cache", name);
+        this.misses = metrics.counter("casefetcher_cache_misses_total", "cache", name);
+        this.loadFailures = metrics.counter("casefetcher_cache_load_failures_total", "cache", name);
+        this.evictions = metrics.counter("casefetcher_cache_evictions_total", "cache", name, "cause", "size");
+        this.expirations = metrics.counter("casefetcher_cache_evictions_total", "cache", name, "cause", "expired");
+        this.loadTime = metrics.histogram("casefetcher_cache_load_seconds", "cache", name);
+
+        this.expireAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(expireAfterWriteMillis);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+                if (size() > maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        Sweeper.schedule(this, Math.min(expireAfterWriteMillis, AppConfig.CACHE_SWEEP_INTERVAL_MS));
     }
 
     @Override
     public void put(K key, V value) {
-        cache.put(key, new CacheEntry<>(value));
+        synchronized (this) {
+            entries.put(key, new CacheEntry<>(value, System.nanoTime() + expireAfterWriteNanos));
+        }
         logger.debug("Added to cache: key={}", key);
     }
 
     @Override
     public Optional<V> get(K key) {
-        CacheEntry<V> entry = cache.get(key);
-        if (entry != null && !entry.isExpired()) {
-            logger.debug("Cache hit: key={}", key);
-            return Optional.of(entry.getValue());
-        } else {
-            logger.debug("Cache miss: key={}", key);
-            if (entry != null) {
-                remove(key);
+        return Optional.ofNullable(getIfPresent(key));
+    }
+
+    @Override
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> pending = loading.putIfAbsent(key, load);
+        if (pending != null) {
+            logger.debug("Waiting for the pending load of key={}", key);
+            return join(pending);
+        }
+        try {
+            // Another caller may have completed its load between the lookup and the registration of this one
+            value = peek(key);
+            if (value == null) {
+                value = load(key, loader);
+                put(key, value);
             }
-            return Optional.empty();
+            load.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, load);
         }
     }
 
     @Override
     public void remove(K key) {
-        cache.remove(key);
+        synchronized (this) {
+            entries.remove(key);
+        }
         logger.debug("Removed from cache: key={}", key);
     }
 
-    private static class CacheEntry<V> {
-        private final V value;
-        private final LocalDateTime expirationTime;
+    @Override
+    public CacheStats getStats() {
+        int size;
+        synchronized (this) {
+            size = entries.size();
+        }
+        return new CacheStats(hits.get(), misses.get(), loadTime.getCount(), loadFailures.get(),
+                loadTime.getSumNanos(), evictions.get(), expirations.get(), size);
+    }
+
+    private V getIfPresent(K key) {
+        V value = peek(key);
+        if (value != null) {
+            hits.increment();
+            logger.debug("Cache hit: key={}", key);
+        } else {
+            misses.increment();
+            logger.debug("Cache miss: key={}", key);
+        }
+        return value;
+    }
+
+    /**
+     * @return the live value of the key, or {@code null}; an expired entry is removed
+     */
+    private synchronized V peek(K key) {
+        CacheEntry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.nanoTime())) {
+            entries.remove(key);
+            expirations.increment();
+            return null;
+        }
+        return entry.value();
+    }
 
-        public CacheEntry(V value) {
-            this.value = value;
-            this.expirationTime = LocalDateTime.now().plusHours(AppConfig.CACHE_EXPIRATION_HOURS);
+    private V load(K key, Function<? super K, ? extends V> loader) {
+        long startNanos = System.nanoTime();
+        try {
+            return Objects.requireNonNull(loader.apply(key), "Cache loader returned null");
+        } catch (RuntimeException | Error e) {
+            loadFailures.increment();
+            throw e;
+        } finally {
+            loadTime.recordSince(startNanos);
         }
+    }
 
-        public V getValue() {
-            return value;
+    private static <V> V join(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private synchronized void sweep() {
+        long now = System.nanoTime();
+        int expired = 0;
+        for (Iterator<CacheEntry<V>> iterator = entries.values().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().isExpired(now)) {
+                iterator.remove();
+                expired++;
+            }
         }
+        if (expired > 0) {
+            expirations.add(expired);
+            logger.debug("Swept {} expired cache entries", expired);
+        }
+    }
+
+    private record CacheEntry<V>(V value, long expiresAtNanos) {
+        boolean isExpired(long nowNanos) {
+            return nowNanos - expiresAtNanos >= 0;
+        }
+    }
 
-        public boolean isExpired() {
-            return LocalDateTime.now().isAfter(expirationTime);
+    /**
+     * Periodically sweeps a cache, until the cache has been garbage collected.
+     */
+    private static final class Sweeper implements Runnable {
+        private final WeakReference<InMemoryCacheService<?, ?>> cache;
+        private volatile ScheduledFuture<?> task;
+
+        private Sweeper(InMemoryCacheService<?, ?> cache) {
+            this.cache = new WeakReference<>(cache);
+        }
+
+        static void schedule(InMemoryCacheService<?, ?> cache, long intervalMillis) {
+            Sweeper sweep = new Sweeper(cache);
+            sweep.task = sweeper.scheduleWithFixedDelay(sweep, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void run() {
+            InMemoryCacheService<?, ?> target = cache.get();
+            if (target != null) {
+                target.sweep();
+            } else if (task != null) {
+                task.cancel(false);
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,184 @@
+package cla33ic.casefetcher.cache;
+
+import cla33ic.casefetcher.model.PriceSeries;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+/**
+ * Daily price history of a single market item, persisted in a memory-mapped file.
+ * <p>
+ * File layout: a 24 byte header (magic, version, epoch day of the last refresh, number of records) followed by
+ * fixed 12 byte records of {@code int epochDay, double price}, sorted by day. The file is mapped with room for
+ * more records, so that refreshes write into the existing mapping and it is only replaced when it has to double.
+ * Refreshes only append the days after the last stored one; the last stored day itself is overwritten in place,
+ * as it may have been stored while that day was still in progress.
+ */
+public class MappedPriceHistory {
+    private static final Logger logger = LoggerFactory.getLogger(MappedPriceHistory.class);
+    private static final int MAGIC = 0x43535048; // "CSPH"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int REFRESHED_OFFSET = 8;
+    private static final int SIZE_OFFSET = 16;
+    private static final int RECORD_SIZE = 12;
+    private static final int MIN_CAPACITY = 64;
+
+    private final Path file;
+    private MappedByteBuffer buffer;
+    private int size;
+
+    MappedPriceHistory(Path file) throws IOException {
+        this.file = file;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (readVersion(channel) != VERSION) {
+                if (channel.size() > 0) {
+                    logger.warn("Discarding unreadable price history file {}", file);
+                }
+                channel.truncate(0);
+                channel.write(header(Long.MIN_VALUE, 0), 0);
+            }
+            buffer = map(channel, channel.size());
+            size = buffer.getInt(SIZE_OFFSET);
+            int capacity = capacity(buffer);
+            if (size < 0 || size > capacity) {
+                logger.warn("Truncating price history file {} to its {} complete records", file, capacity);
+                size = capacity;
+                buffer.putInt(SIZE_OFFSET, size);
+            }
+        }
+    }
+
+    /**
+     * Returns whether the stored history is as complete as the market can provide for the given date,
+     * i.e. the date is on or before the last stored day, or the history was refreshed after that day ended.
+     */
+    public synchronized boolean covers(LocalDate date) {
+        long epochDay = date.toEpochDay();
+        long lastDay = size > 0 ? epochDayAt(size - 1) : Long.MIN_VALUE;
+        long refreshedDay = buffer.getLong(REFRESHED_OFFSET);
+        return epochDay <= lastDay || epochDay < refreshedDay;
+    }
+
+    /**
+     * Appends the days of the given prices that come after the last stored day and records the refresh.
+     * An empty history, e.g. of a listing page fetched while logged out, is not recorded as a refresh.
+     * @param prices the full price history as fetched from the market
+     * @return the number of newly stored days
+     */
+    public synchronized int append(PriceSeries prices) throws IOException {
+        if (prices.isEmpty()) {
+            return 0;
+        }
+        int tailStart = 0;
+        if (size > 0) {
+            int ceiling = prices.ceilingIndex(epochDayAt(size - 1));
+            tailStart = ceiling >= 0 ? ceiling : prices.size();
+        }
+        boolean overwritesLastDay = size > 0 && tailStart < prices.size()
+                && prices.epochDayAt(tailStart) == epochDayAt(size - 1);
+        int start = overwritesLastDay ? size - 1 : size;
+        int newSize = start + prices.size() - tailStart;
+
+        if (newSize > capacity(buffer)) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                buffer = map(channel, HEADER_SIZE + (long) Math.max(newSize, capacity(buffer) * 2) * RECORD_SIZE);
+            }
+        }
+        for (int i = tailStart; i < prices.size(); i++) {
+            int offset = HEADER_SIZE + (start + i - tailStart) * RECORD_SIZE;
+            buffer.putInt(offset, prices.epochDayAt(i));
+            buffer.putDouble(offset + Integer.BYTES, prices.priceAt(i));
+        }
+        // The count is written after the records, so that a crash in between leaves the previous history
+        buffer.putInt(SIZE_OFFSET, newSize);
+        buffer.putLong(REFRESHED_OFFSET, LocalDate.now().toEpochDay());
+        int previousSize = size;
+        size = newSize;
+        return size - previousSize;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the index of the last stored day on or before the given date, or -1 if there is none.
+     */
+    public synchronized int floorIndex(LocalDate date) {
+        long epochDay = date.toEpochDay();
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midDay = epochDayAt(mid);
+            if (midDay < epochDay) {
+                low = mid + 1;
+            } else if (midDay > epochDay) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * @return a copy of the stored history
+     */
+    public synchronized PriceSeries toSeries() {
+        PriceSeries.Builder series = PriceSeries.builder(size);
+        for (int i = 0; i < size; i++) {
+            series.add(epochDayAt(i), priceAt(i));
+        }
+        return series.build();
+    }
+
+    public synchronized LocalDate dateAt(int index) {
+        return LocalDate.ofEpochDay(epochDayAt(index));
+    }
+
+    public synchronized double priceAt(int index) {
+        return buffer.getDouble(HEADER_SIZE + index * RECORD_SIZE + Integer.BYTES);
+    }
+
+    private int epochDayAt(int index) {
+        return buffer.getInt(HEADER_SIZE + index * RECORD_SIZE);
+    }
+
+    /**
+     * Maps the file with room for at least the minimum capacity, extending it if it is shorter.
+     */
+    private static MappedByteBuffer map(FileChannel channel, long length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                Math.max(length, HEADER_SIZE + (long) MIN_CAPACITY * RECORD_SIZE));
+    }
+
+    private static int capacity(MappedByteBuffer buffer) {
+        return (buffer.capacity() - HEADER_SIZE) / RECORD_SIZE;
+    }
+
+    private static ByteBuffer header(long refreshedDay, int size) {
+        return ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).putLong(refreshedDay).putInt(size).flip();
+    }
+
+    /**
+     * @return the version of the file, or 0 if it is not a price history file
+     */
+    private static int readVersion(FileChannel channel) throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            return 0;
+        }
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES * 2);
+        channel.read(header, 0);
+        header.flip();
+        return header.getInt() == MAGIC ? header.getInt() : 0;
+    }
+}
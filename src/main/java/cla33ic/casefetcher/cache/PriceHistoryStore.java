@@ -0,0 +1,51 @@
+package cla33ic.casefetcher.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * On-disk store of market price histories that survives restarts, with one memory-mapped file per item.
+ */
+public class PriceHistoryStore {
+    private final Path directory;
+    private final Map<String, MappedPriceHistory> histories = new ConcurrentHashMap<>();
+
+    public PriceHistoryStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens the price history of the given item, creating an empty one if it has never been stored.
+     * @param itemName the market hash name of the item
+     * @return the price history, shared by all callers of this store
+     * @throws IOException if the history file cannot be created or mapped
+     */
+    public MappedPriceHistory open(String itemName) throws IOException {
+        MappedPriceHistory history = histories.get(itemName);
+        if (history != null) {
+            return history;
+        }
+        try {
+            return histories.computeIfAbsent(itemName, name -> {
+                try {
+                    Files.createDirectories(directory);
+                    return new MappedPriceHistory(directory.resolve(fileNameFor(name)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static String fileNameFor(String itemName) {
+        // Keep the name recognizable, the hash keeps names that only differ in special characters apart
+        String readable = itemName.replaceAll("[^A-Za-z0-9._-]", "_");
+        return readable + "_" + Integer.toHexString(itemName.hashCode()) + ".prices";
+    }
+}
@@ -1,18 +1,96 @@
 package cla33ic.casefetcher.config;
 
+/**
+ * Application settings. Settings marked as overridable can be set with the given system property, e.g. to run
+ * against a local stand-in server instead of Steam.
+ */
 public class AppConfig {
 
-    // Steam Market settings
-    public static final String STEAM_MARKET_BASE_URL = "https://steamcommunity.com/market/listings/730/";
+    // Directory of all files the application writes: results, caches, metrics and logs (overridable: casefetcher.results.dir)
+    public static final String RESULTS_DIR = System.getProperty("casefetcher.results.dir", "results");
+
+    // Steam Market settings; the delay is the initial one of the adaptive market rate limiter
+    // (overridable: casefetcher.market.url, casefetcher.market.delay.ms)
+    public static final String STEAM_MARKET_BASE_URL = System.getProperty("casefetcher.market.url",
+            "https://steamcommunity.com/market/listings/730/");
+    public static final long MARKET_REQUEST_DELAY_MS = Long.getLong("casefetcher.market.delay.ms", 2400);
+
+    // Directory of the persistent, memory-mapped case price histories
+    public static final String PRICE_HISTORY_DIR = RESULTS_DIR + "/prices";
 
     // Case opening settings
     public static final double KEY_PRICE = 2.35;
 
-    // Cache settings
+    // In-memory cache settings: entries expire after the expiration time and the least recently used ones are
+    // evicted above the maximum; expired entries are also swept at the interval
     public static final int CACHE_EXPIRATION_HOURS = 24;
+    public static final int CACHE_MAX_ENTRIES = 500;
+    public static final long CACHE_SWEEP_INTERVAL_MS = 60_000;
+
+    // On-disk HTTP response cache: rules of the form "url pattern=ISO-8601 duration", separated by commas.
+    // Matching responses are served from disk within their freshness and revalidated afterwards
+    // (overridable: casefetcher.http.cache.freshness)
+    public static final String HTTP_CACHE_DIR = RESULTS_DIR + "/http_cache";
+    public static final String HTTP_CACHE_FRESHNESS = System.getProperty("casefetcher.http.cache.freshness",
+            "/market/listings/=PT6H");
+    // Stored responses not revalidated for the maximum age are deleted at startup, and the least recently stored
+    // ones beyond the maximum total size of their bodies
+    public static final long HTTP_CACHE_MAX_AGE_DAYS = 30;
+    public static final long HTTP_CACHE_MAX_BYTES = 256L * 1024 * 1024;
+
+    // Metrics file written with --metrics, the extension depends on the format
+    public static final String METRICS_FILE = RESULTS_DIR + "/metrics";
+
+    // Flight recordings written with --profile, suffixed with the start time of the run
+    public static final String PROFILE_FILE_PREFIX = RESULTS_DIR + "/profile_";
+
+    // Logging: console and rolling file appenders are fed through a bounded queue by a background thread, dropping
+    // events instead of blocking when it is full. An empty file name disables the file
+    // (overridable: casefetcher.log.async, casefetcher.log.file)
+    public static final boolean LOG_ASYNC = Boolean.parseBoolean(System.getProperty("casefetcher.log.async", "true"));
+    public static final String LOG_FILE = System.getProperty("casefetcher.log.file", RESULTS_DIR + "/logs/casefetcher.log");
+    public static final int LOG_QUEUE_SIZE = 8192;
+    public static final String LOG_MAX_FILE_SIZE = "10MB";
+    public static final int LOG_MAX_HISTORY_DAYS = 7;
+    public static final String LOG_TOTAL_SIZE_CAP = "200MB";
+
+    // Per-row log messages (see LoggingConfig.SAMPLED): at most this many per message per interval
+    public static final int LOG_SAMPLE_LIMIT = 20;
+    public static final long LOG_SAMPLE_INTERVAL_MS = 10_000;
+
+    // Item rarities remembered across pages and runs
+    public static final int RARITY_CACHE_SIZE = 50_000;
+    public static final String RARITY_CACHE_FILE = RESULTS_DIR + "/item_rarities.tsv";
+
+    // Number of event log segments after which the log is compacted into one
+    public static final int EVENT_LOG_MAX_SEGMENTS = 16;
+
+    // Initial request delay (in milliseconds) between Steam API calls to respect rate limiting (overridable: casefetcher.request.delay.ms)
+    public static final long STEAM_REQUEST_DELAY_MS = Long.getLong("casefetcher.request.delay.ms", 1000);
+
+    // Requests per host that may be made at once after a quiet period; the rate itself adapts to 429 responses
+    public static final int RATE_LIMIT_BURST = Integer.getInteger("casefetcher.ratelimit.burst", 2);
+
+    // Retry settings: retries wait a decorrelated jittered delay between the initial and the maximum delay (in milliseconds),
+    // or the server's Retry-After, and a request is given up after the maximum attempts or once its deadline has passed
+    // (overridable: casefetcher.retry.delay.ms, casefetcher.request.deadline.ms)
+    public static final long HTTP_RETRY_INITIAL_DELAY_MS = Long.getLong("casefetcher.retry.delay.ms", 2000);
+    public static final long HTTP_RETRY_MAX_DELAY_MS = 30_000;
+    public static final int HTTP_MAX_ATTEMPTS = 10;
+    public static final long HTTP_REQUEST_DEADLINE_MS = Long.getLong("casefetcher.request.deadline.ms", 120_000);
+
+    // Retries of failed (5xx) requests shared by all requests: each request adds the ratio to the budget and each retry
+    // takes one, up to the cap
+    public static final double HTTP_RETRY_BUDGET_RATIO = 0.2;
+    public static final int HTTP_RETRY_BUDGET_CAP = 20;
+
+    // Consecutive throttled or failed requests to a host after which no requests are sent to it for the open time
+    public static final int CIRCUIT_BREAKER_FAILURE_THRESHOLD = 5;
+    public static final long CIRCUIT_BREAKER_OPEN_MS = 30_000;
 
-    // Request delay (in milliseconds) between Steam API calls to respect rate limiting
-    public static final long STEAM_REQUEST_DELAY_MS = 1000;
+    // Inventory history pipeline settings
+    public static final int HISTORY_PAGE_QUEUE_CAPACITY = 16;
+    public static final int HISTORY_PARSER_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
 
     private AppConfig() {
         // Private constructor to prevent instantiation
@@ -0,0 +1,132 @@
+package cla33ic.casefetcher.config;
+
+import cla33ic.casefetcher.metrics.MetricsFormat;
+import cla33ic.casefetcher.report.ReportFormat;
+import cla33ic.casefetcher.service.parser.CaseOpeningParserType;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Options passed on the command line, e.g. {@code --format=csv --console-limit=50} or {@code --batch=accounts.txt}.
+ */
+public class CommandLineOptions {
+    private ReportFormat reportFormat = ReportFormat.TEXT;
+    private int consoleLimit = -1;
+    private CaseOpeningParserType parserType = CaseOpeningParserType.JSOUP;
+    private Path batchFile;
+    private MetricsFormat metricsFormat;
+    private long metricsIntervalSeconds;
+    private boolean profile;
+    private double keyPrice = AppConfig.KEY_PRICE;
+    private boolean reprice;
+
+    public static CommandLineOptions parse(String[] args) {
+        CommandLineOptions options = new CommandLineOptions();
+        for (String arg : args) {
+            if (arg.startsWith("--format=")) {
+                options.reportFormat = ReportFormat.fromName(valueOf(arg));
+            } else if (arg.startsWith("--console-limit=")) {
+                try {
+                    options.consoleLimit = Integer.parseInt(valueOf(arg));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid console limit: " + valueOf(arg));
+                }
+            } else if (arg.startsWith("--parser=")) {
+                options.parserType = CaseOpeningParserType.fromName(valueOf(arg));
+            } else if (arg.startsWith("--batch=")) {
+                options.batchFile = Paths.get(valueOf(arg));
+            } else if (arg.startsWith("--metrics=")) {
+                options.metricsFormat = MetricsFormat.fromName(valueOf(arg));
+            } else if (arg.equals("--profile")) {
+                options.profile = true;
+            } else if (arg.startsWith("--metrics-interval=")) {
+                try {
+                    options.metricsIntervalSeconds = Long.parseLong(valueOf(arg));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid metrics interval: " + valueOf(arg));
+                }
+            } else if (arg.startsWith("--key-price=")) {
+                try {
+                    options.keyPrice = Double.parseDouble(valueOf(arg));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid key price: " + valueOf(arg));
+                }
+            } else if (arg.equals("--reprice")) {
+                options.reprice = true;
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Format of the exported events; the text report with the summary is always written.
+     */
+    public ReportFormat getReportFormat() {
+        return reportFormat;
+    }
+
+    /**
+     * Maximum number of events printed to the console, negative for all events.
+     */
+    public int getConsoleLimit() {
+        return consoleLimit;
+    }
+
+    /**
+     * Implementation used to parse the history pages.
+     */
+    public CaseOpeningParserType getParserType() {
+        return parserType;
+    }
+
+    /**
+     * File with one profile URL and cookie per line to analyze in batch mode, or {@code null} to read a single
+     * account from the console.
+     */
+    public Path getBatchFile() {
+        return batchFile;
+    }
+
+    /**
+     * Format of the metrics file written at the end of the run, or {@code null} to write none.
+     */
+    public MetricsFormat getMetricsFormat() {
+        return metricsFormat;
+    }
+
+    /**
+     * Interval in seconds at which the metrics file is also written during the run, 0 to only write it at the end.
+     */
+    public long getMetricsIntervalSeconds() {
+        return metricsIntervalSeconds;
+    }
+
+    /**
+     * Whether the run is recorded with Java Flight Recorder.
+     */
+    public boolean isProfile() {
+        return profile;
+    }
+
+    /**
+     * Price charged per key in the summary.
+     */
+    public double getKeyPrice() {
+        return keyPrice;
+    }
+
+    /**
+     * Whether the cached events are re-priced with the current price histories instead of keeping the prices they
+     * were resolved with.
+     */
+    public boolean isReprice() {
+        return reprice;
+    }
+
+    private static String valueOf(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+}
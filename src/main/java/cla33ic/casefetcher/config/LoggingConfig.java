@@ -1,37 +1,133 @@
 package cla33ic.casefetcher.config;
 
+import ch.qos.logback.classic.AsyncAppender;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
 import ch.qos.logback.core.ConsoleAppender;
+import ch.qos.logback.core.rolling.RollingFileAppender;
+import ch.qos.logback.core.rolling.SizeAndTimeBasedRollingPolicy;
+import ch.qos.logback.core.util.FileSize;
 import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
 
 import java.nio.charset.StandardCharsets;
 
+/**
+ * Programmatic logback configuration.
+ * <p>
+ * The application logs to the console and a rolling file. By default both are fed through a bounded queue by a
+ * background thread, so logging never blocks the crawl: when the queue fills up, INFO and lower events are
+ * discarded first and, once it is full, any event. Messages logged once per row, marked with {@link #SAMPLED},
+ * are limited to {@link AppConfig#LOG_SAMPLE_LIMIT} per message per {@link AppConfig#LOG_SAMPLE_INTERVAL_MS}.
+ */
 public class LoggingConfig {
+    /**
+     * Marks messages logged for every row or entry, whose rate is limited.
+     */
+    public static final Marker SAMPLED = MarkerFactory.getMarker("SAMPLED");
+
+    private static final String PATTERN = "%d{HH:mm:ss.SSS} [%thread] %-5level %logger{36} - %msg%n";
+
+    /**
+     * Configures the application's logging as set in {@link AppConfig}.
+     */
     public static void configureLogging() {
-        configureLogging(Level.INFO);
+        configureLogging(Level.INFO, AppConfig.LOG_ASYNC, AppConfig.LOG_FILE);
     }
 
+    /**
+     * Configures synchronous logging to the console only.
+     */
     public static void configureLogging(Level rootLogLevel) {
+        configureLogging(rootLogLevel, false, "");
+    }
+
+    /**
+     * @param async whether the appenders are fed through a bounded queue by a background thread
+     * @param logFile the rolling log file, empty to only log to the console
+     */
+    public static void configureLogging(Level rootLogLevel, boolean async, String logFile) {
         LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
         loggerContext.reset();
 
+        SamplingTurboFilter samplingFilter = new SamplingTurboFilter(SAMPLED, AppConfig.LOG_SAMPLE_LIMIT,
+                AppConfig.LOG_SAMPLE_INTERVAL_MS);
+        samplingFilter.setContext(loggerContext);
+        samplingFilter.start();
+        loggerContext.addTurboFilter(samplingFilter);
+
+        ConsoleAppender<ILoggingEvent> consoleAppender = new ConsoleAppender<>();
+        consoleAppender.setContext(loggerContext);
+        consoleAppender.setEncoder(createEncoder(loggerContext));
+        consoleAppender.start();
+
+        Logger rootLogger = loggerContext.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        rootLogger.setLevel(rootLogLevel);
+        rootLogger.addAppender(async ? asyncAppender(loggerContext, consoleAppender) : consoleAppender);
+        if (!logFile.isEmpty()) {
+            Appender<ILoggingEvent> fileAppender = createFileAppender(loggerContext, logFile);
+            rootLogger.addAppender(async ? asyncAppender(loggerContext, fileAppender) : fileAppender);
+        }
+
+        if (async) {
+            // Flushes the queued events when the JVM exits
+            Runtime.getRuntime().addShutdownHook(new Thread(loggerContext::stop, "logback-shutdown"));
+        }
+    }
+
+    private static PatternLayoutEncoder createEncoder(LoggerContext loggerContext) {
         PatternLayoutEncoder encoder = new PatternLayoutEncoder();
         encoder.setContext(loggerContext);
         encoder.setCharset(StandardCharsets.UTF_8);
-        encoder.setPattern("%d{HH:mm:ss.SSS} [%thread] %-5level %logger{36} - %msg%n");
+        encoder.setPattern(PATTERN);
         encoder.start();
+        return encoder;
+    }
 
-        ConsoleAppender<ILoggingEvent> appender = new ConsoleAppender<>();
+    /**
+     * Creates an appender to the log file that rolls over daily and when the file reaches its maximum size.
+     */
+    private static Appender<ILoggingEvent> createFileAppender(LoggerContext loggerContext, String logFile) {
+        RollingFileAppender<ILoggingEvent> appender = new RollingFileAppender<>();
         appender.setContext(loggerContext);
-        appender.setEncoder(encoder);
+        appender.setFile(logFile);
+        appender.setEncoder(createEncoder(loggerContext));
+        // Flushed by the buffered output stream instead of after every event
+        appender.setImmediateFlush(false);
+
+        SizeAndTimeBasedRollingPolicy<ILoggingEvent> rollingPolicy = new SizeAndTimeBasedRollingPolicy<>();
+        rollingPolicy.setContext(loggerContext);
+        rollingPolicy.setParent(appender);
+        rollingPolicy.setFileNamePattern(logFile.replaceFirst("\\.log$", "") + ".%d{yyyy-MM-dd}.%i.log.gz");
+        rollingPolicy.setMaxFileSize(FileSize.valueOf(AppConfig.LOG_MAX_FILE_SIZE));
+        rollingPolicy.setMaxHistory(AppConfig.LOG_MAX_HISTORY_DAYS);
+        rollingPolicy.setTotalSizeCap(FileSize.valueOf(AppConfig.LOG_TOTAL_SIZE_CAP));
+        rollingPolicy.start();
+
+        appender.setRollingPolicy(rollingPolicy);
         appender.start();
+        return appender;
+    }
 
-        Logger rootLogger = loggerContext.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
-        rootLogger.setLevel(rootLogLevel);
-        rootLogger.addAppender(appender);
+    /**
+     * Wraps the appender in one that hands events to a background thread through a bounded queue and drops them
+     * instead of blocking when the queue is full.
+     */
+    private static Appender<ILoggingEvent> asyncAppender(LoggerContext loggerContext, Appender<ILoggingEvent> appender) {
+        AsyncAppender asyncAppender = new AsyncAppender();
+        asyncAppender.setContext(loggerContext);
+        asyncAppender.setName("async-" + appender.getClass().getSimpleName());
+        asyncAppender.setQueueSize(AppConfig.LOG_QUEUE_SIZE);
+        // INFO and lower are discarded once the queue is 80% full, WARN and ERROR only once it is full
+        asyncAppender.setDiscardingThreshold(AppConfig.LOG_QUEUE_SIZE / 5);
+        asyncAppender.setNeverBlock(true);
+        asyncAppender.addAppender(appender);
+        asyncAppender.start();
+        return asyncAppender;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,82 @@
+package cla33ic.casefetcher.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets at most a given number of messages with a marker through per message format and interval, and drops the
+ * rest. The number of dropped messages is logged with the first message of the format in a later interval.
+ * <p>
+ * As a turbo filter it runs before the logging event is created, so dropped messages cost neither formatting
+ * nor a slot in an appender's queue.
+ */
+class SamplingTurboFilter extends TurboFilter {
+    private static final String FQCN = SamplingTurboFilter.class.getName();
+
+    private final Marker marker;
+    private final int limit;
+    private final long intervalNanos;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    SamplingTurboFilter(Marker marker, int limit, long intervalMillis) {
+        this.marker = marker;
+        this.limit = limit;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (marker == null || format == null || !marker.contains(this.marker) || !logger.isEnabledFor(level)) {
+            return FilterReply.NEUTRAL;
+        }
+        long now = System.nanoTime();
+        long dropped = windows.computeIfAbsent(format, key -> new Window(now)).tryAcquire(now, limit, intervalNanos);
+        if (dropped < 0) {
+            return FilterReply.DENY;
+        }
+        if (dropped > 0) {
+            // Logged without the marker, so it does not pass through this filter again
+            logger.log(null, FQCN, Level.toLocationAwareLoggerInteger(level),
+                    "Suppressed {} log messages like \"{}\" in the last {} s",
+                    new Object[]{dropped, format, TimeUnit.NANOSECONDS.toSeconds(intervalNanos)}, null);
+        }
+        return FilterReply.NEUTRAL;
+    }
+
+    private static final class Window {
+        private long start;
+        private int count;
+        private long dropped;
+
+        Window(long start) {
+            this.start = start;
+        }
+
+        /**
+         * @return -1 if the message is to be dropped, otherwise the number of messages dropped in the previous
+         * interval if this is the first message of a new one, else 0
+         */
+        synchronized long tryAcquire(long now, int limit, long intervalNanos) {
+            if (now - start >= intervalNanos) {
+                long droppedBefore = dropped;
+                start = now;
+                count = 1;
+                dropped = 0;
+                return droppedBefore;
+            }
+            if (count < limit) {
+                count++;
+                return 0;
+            }
+            dropped++;
+            return -1;
+        }
+    }
+}
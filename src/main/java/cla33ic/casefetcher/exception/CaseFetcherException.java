@@ -2,16 +2,35 @@ package cla33ic.casefetcher.exception;
 
 public class CaseFetcherException extends RuntimeException {
     private final int statusCode;
+    private final long retryAfterMillis;
 
     public CaseFetcherException(String message, int statusCode) {
+        this(message, statusCode, 0);
+    }
+
+    public CaseFetcherException(String message, int statusCode, long retryAfterMillis) {
         super(message);
         this.statusCode = statusCode;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public CaseFetcherException(String message, int statusCode, Throwable cause) {
+        super(message, cause);
+        this.statusCode = statusCode;
+        this.retryAfterMillis = 0;
     }
 
     public int getStatusCode() {
         return statusCode;
     }
 
+    /**
+     * @return the wait the server asked for with a Retry-After header, 0 if it did not send one
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
     @Override
     public String toString() {
         return "CaseFetcherException: " + getMessage() + (statusCode != 0 ? " (Status Code: " + statusCode + ")" : "");
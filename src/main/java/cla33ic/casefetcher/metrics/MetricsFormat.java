@@ -0,0 +1,29 @@
+package cla33ic.casefetcher.metrics;
+
+import java.util.Locale;
+
+/**
+ * Output formats of the metrics file.
+ */
+public enum MetricsFormat {
+    PROMETHEUS("prom"),
+    JSON("json");
+
+    private final String fileExtension;
+
+    MetricsFormat(String fileExtension) {
+        this.fileExtension = fileExtension;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    public static MetricsFormat fromName(String name) {
+        return switch (name.toLowerCase(Locale.ROOT)) {
+            case "prometheus", "prom" -> PROMETHEUS;
+            case "json" -> JSON;
+            default -> throw new IllegalArgumentException("Unknown metrics format: " + name);
+        };
+    }
+}
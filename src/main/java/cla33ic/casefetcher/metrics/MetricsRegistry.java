@@ -0,0 +1,162 @@
+package cla33ic.casefetcher.metrics;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the application's counters and latency histograms, which can be written in the Prometheus text
+ * format or as JSON.
+ * <p>
+ * A metric is identified by its name and label pairs, e.g. {@code histogram("casefetcher_http_request_seconds",
+ * "host", "steamcommunity.com")}, and is created on first use.
+ */
+public final class MetricsRegistry {
+    private static final MetricsRegistry global = new MetricsRegistry();
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p99.9"};
+
+    private final Map<MetricId, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<MetricId, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * @return the registry all components of the application record into
+     */
+    public static MetricsRegistry global() {
+        return global;
+    }
+
+    /**
+     * @param labels label names and values, alternating
+     */
+    public Counter counter(String name, String... labels) {
+        return counters.computeIfAbsent(new MetricId(name, List.of(labels)), id -> new Counter());
+    }
+
+    /**
+     * @param labels label names and values, alternating
+     */
+    public LatencyHistogram histogram(String name, String... labels) {
+        return histograms.computeIfAbsent(new MetricId(name, List.of(labels)), id -> new LatencyHistogram());
+    }
+
+    /**
+     * Writes all metrics in the Prometheus text exposition format. Histograms are written as summaries with
+     * their quantiles in seconds, plus a {@code _max} gauge.
+     */
+    public void writePrometheus(Writer writer) throws IOException {
+        String lastName = null;
+        for (Map.Entry<MetricId, Counter> entry : sorted(counters)) {
+            MetricId id = entry.getKey();
+            if (!id.name().equals(lastName)) {
+                writer.write("# TYPE " + id.name() + " counter\n");
+                lastName = id.name();
+            }
+            writer.write(id.name() + id.labelsText(null) + " " + entry.getValue().get() + "\n");
+        }
+        for (Map.Entry<MetricId, LatencyHistogram> entry : sorted(histograms)) {
+            MetricId id = entry.getKey();
+            LatencyHistogram histogram = entry.getValue();
+            if (!id.name().equals(lastName)) {
+                writer.write("# TYPE " + id.name() + " summary\n");
+                lastName = id.name();
+            }
+            for (double quantile : QUANTILES) {
+                writer.write(id.name() + id.labelsText("quantile=\"" + quantile + "\"") + " "
+                        + seconds(histogram.getValueAtPercentile(quantile * 100)) + "\n");
+            }
+            writer.write(id.name() + "_sum" + id.labelsText(null) + " " + seconds(histogram.getSumNanos()) + "\n");
+            writer.write(id.name() + "_count" + id.labelsText(null) + " " + histogram.getCount() + "\n");
+        }
+        lastName = null;
+        for (Map.Entry<MetricId, LatencyHistogram> entry : sorted(histograms)) {
+            MetricId id = entry.getKey();
+            if (!id.name().equals(lastName)) {
+                writer.write("# TYPE " + id.name() + "_max gauge\n");
+                lastName = id.name();
+            }
+            writer.write(id.name() + "_max" + id.labelsText(null) + " " + seconds(entry.getValue().getMaxNanos()) + "\n");
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes all metrics as one JSON object with a list of counters and a list of histograms in seconds.
+     */
+    public void writeJson(Writer writer) throws IOException {
+        JsonWriter json = new JsonWriter(writer);
+        json.setIndent("  ");
+        json.beginObject();
+        json.name("counters").beginArray();
+        for (Map.Entry<MetricId, Counter> entry : sorted(counters)) {
+            json.beginObject();
+            writeId(json, entry.getKey());
+            json.name("value").value(entry.getValue().get());
+            json.endObject();
+        }
+        json.endArray();
+        json.name("histograms").beginArray();
+        for (Map.Entry<MetricId, LatencyHistogram> entry : sorted(histograms)) {
+            LatencyHistogram histogram = entry.getValue();
+            json.beginObject();
+            writeId(json, entry.getKey());
+            json.name("count").value(histogram.getCount());
+            json.name("sum").value(seconds(histogram.getSumNanos()));
+            json.name("max").value(seconds(histogram.getMaxNanos()));
+            for (int i = 0; i < QUANTILES.length; i++) {
+                json.name(PERCENTILE_NAMES[i]).value(seconds(histogram.getValueAtPercentile(QUANTILES[i] * 100)));
+            }
+            json.endObject();
+        }
+        json.endArray();
+        json.endObject();
+        json.flush();
+    }
+
+    private static void writeId(JsonWriter json, MetricId id) throws IOException {
+        json.name("name").value(id.name());
+        json.name("labels").beginObject();
+        for (int i = 0; i + 1 < id.labels().size(); i += 2) {
+            json.name(id.labels().get(i)).value(id.labels().get(i + 1));
+        }
+        json.endObject();
+    }
+
+    private static <T> List<Map.Entry<MetricId, T>> sorted(Map<MetricId, T> metrics) {
+        return metrics.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(Comparator.comparing(MetricId::name)
+                        .thenComparing(id -> String.join(",", id.labels()))))
+                .toList();
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+
+    private record MetricId(String name, List<String> labels) {
+        /**
+         * @param extraLabel an additional, already formatted label, or {@code null}
+         * @return the labels in Prometheus syntax, empty if there are none
+         */
+        String labelsText(String extraLabel) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i + 1 < labels.size(); i += 2) {
+                text.append(text.isEmpty() ? "" : ",").append(labels.get(i)).append("=\"")
+                        .append(escape(labels.get(i + 1))).append('"');
+            }
+            if (extraLabel != null) {
+                text.append(text.isEmpty() ? "" : ",").append(extraLabel);
+            }
+            return text.isEmpty() ? "" : "{" + text + "}";
+        }
+
+        private static String escape(String value) {
+            return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        }
+    }
+}
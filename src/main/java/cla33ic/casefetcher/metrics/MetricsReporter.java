@@ -0,0 +1,81 @@
+package cla33ic.casefetcher.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the metrics of a registry to a file when it is closed and, optionally, periodically while it is open.
+ * The file is replaced atomically, so that readers such as a Prometheus textfile collector never see a partial one.
+ */
+public final class MetricsReporter implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsReporter.class);
+
+    private final MetricsRegistry registry;
+    private final MetricsFormat format;
+    private final Path file;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param intervalSeconds the interval of periodic writes, 0 or less to only write when closed
+     */
+    public MetricsReporter(MetricsRegistry registry, MetricsFormat format, Path file, long intervalSeconds) {
+        this.registry = registry;
+        this.format = format;
+        this.file = file;
+        if (intervalSeconds > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "metrics-reporter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleAtFixedRate(this::writeQuietly, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    public synchronized void write() throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path tempFile = Files.createTempFile(directory, "metrics", ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                if (format == MetricsFormat.PROMETHEUS) {
+                    registry.writePrometheus(writer);
+                } else {
+                    registry.writeJson(writer);
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        writeQuietly();
+        logger.info("Wrote metrics to {}", file);
+    }
+
+    private void writeQuietly() {
+        try {
+            write();
+        } catch (IOException e) {
+            logger.error("Failed to write metrics to {}: {}", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package cla33ic.casefetcher.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Loading or saving the cached events or reports of an account.
+ */
+@Name("cla33ic.casefetcher.CachePersist")
+@Label("Cache Persistence")
+@Category({"Case Fetcher", "Persistence"})
+@Description("Loading or saving the cached events or reports of an account")
+@StackTrace(false)
+public final class CachePersistEvent extends Event {
+    @Label("Operation")
+    @Description("load, append or report")
+    String operation;
+
+    @Label("Account")
+    String account;
+
+    @Label("Events")
+    int events;
+
+    public static CachePersistEvent start(String operation, String account) {
+        CachePersistEvent event = new CachePersistEvent();
+        event.operation = operation;
+        event.account = account;
+        event.begin();
+        return event;
+    }
+
+    public void finish(int events) {
+        end();
+        if (shouldCommit()) {
+            this.events = events;
+            commit();
+        }
+    }
+}
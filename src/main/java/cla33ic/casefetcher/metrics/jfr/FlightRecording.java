@@ -0,0 +1,53 @@
+package cla33ic.casefetcher.metrics.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+/**
+ * A Java Flight Recorder recording of the whole run with the JDK's "profile" settings, which include CPU samples,
+ * allocations and GC, plus the application's own events. It is written to a file when closed.
+ */
+public final class FlightRecording implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecording.class);
+
+    private final Recording recording;
+    private final Path file;
+
+    private FlightRecording(Recording recording, Path file) {
+        this.recording = recording;
+        this.file = file;
+    }
+
+    public static FlightRecording start(Path file) throws IOException {
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration("profile");
+        } catch (ParseException e) {
+            throw new IOException("Invalid JFR configuration", e);
+        }
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Recording recording = new Recording(configuration);
+        recording.setName("casefetcher");
+        recording.setDestination(file);
+        // Keep what was recorded if the run is cut short
+        recording.setDumpOnExit(true);
+        recording.start();
+        logger.info("Started flight recording to {}", file);
+        return new FlightRecording(recording, file);
+    }
+
+    @Override
+    public void close() {
+        // Stopping the recording writes it to its destination
+        recording.stop();
+        recording.close();
+        logger.info("Wrote flight recording to {}", file);
+    }
+}
@@ -0,0 +1,73 @@
+package cla33ic.casefetcher.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One attempt to fetch a page from Steam, from sending the request until its body has been read.
+ */
+@Name("cla33ic.casefetcher.PageFetch")
+@Label("Page Fetch")
+@Category({"Case Fetcher", "HTTP"})
+@Description("An attempt to fetch a page from Steam")
+@StackTrace(false)
+public final class PageFetchEvent extends Event {
+    @Label("URL Class")
+    @Description("Kind of page: inventory_history, market_listing or other")
+    String urlClass;
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Attempt")
+    int attempt;
+
+    @Label("Status Code")
+    @Description("HTTP status code, 0 if no response was received")
+    int statusCode;
+
+    @Label("Body Size")
+    @Description("Bytes of the response body read by the application, -1 if unknown. "
+            + "Bodies of the async client are counted before they are decompressed")
+    @DataAmount
+    long bytes = -1;
+
+    /**
+     * Creates and begins the event for an attempt to fetch the URL.
+     */
+    public static PageFetchEvent start(String url, String endpoint, int attempt) {
+        PageFetchEvent event = new PageFetchEvent();
+        event.urlClass = urlClassOf(url);
+        event.endpoint = endpoint;
+        event.attempt = attempt;
+        event.begin();
+        return event;
+    }
+
+    public void setStatusCode(int statusCode) {
+        this.statusCode = statusCode;
+    }
+
+    public void setBytes(long bytes) {
+        this.bytes = bytes;
+    }
+
+    public void finish() {
+        end();
+        if (shouldCommit()) {
+            commit();
+        }
+    }
+
+    private static String urlClassOf(String url) {
+        if (url.contains("/inventoryhistory")) {
+            return "inventory_history";
+        }
+        return url.contains("/market/listings/") ? "market_listing" : "other";
+    }
+}
@@ -0,0 +1,45 @@
+package cla33ic.casefetcher.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Extraction of the case openings from the HTML of one history page.
+ */
+@Name("cla33ic.casefetcher.PageParse")
+@Label("Page Parse")
+@Category({"Case Fetcher", "Parsing"})
+@Description("Extraction of the case openings of a history page")
+@StackTrace(false)
+public final class PageParseEvent extends Event {
+    @Label("Parser")
+    String parser;
+
+    @Label("Rows")
+    @Description("Container unlock rows found on the page")
+    int rows;
+
+    @Label("Events")
+    @Description("Case opening events created from the rows")
+    int events;
+
+    public static PageParseEvent start(String parser) {
+        PageParseEvent event = new PageParseEvent();
+        event.parser = parser;
+        event.begin();
+        return event;
+    }
+
+    public void finish(int rows, int events) {
+        end();
+        if (shouldCommit()) {
+            this.rows = rows;
+            this.events = events;
+            commit();
+        }
+    }
+}
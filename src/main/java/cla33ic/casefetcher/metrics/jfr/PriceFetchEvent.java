@@ -0,0 +1,54 @@
+package cla33ic.casefetcher.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Refresh of the stored price history of an item from its market listing, from the request until the new days
+ * have been stored.
+ */
+@Name("cla33ic.casefetcher.PriceFetch")
+@Label("Price History Fetch")
+@Category({"Case Fetcher", "Market"})
+@Description("Refresh of an item's price history from its market listing")
+@StackTrace(false)
+public final class PriceFetchEvent extends Event {
+    @Label("Item")
+    String item;
+
+    @Label("Asynchronous")
+    boolean async;
+
+    @Label("Fetched Days")
+    @Description("Days in the fetched price history, -1 if the fetch failed")
+    int fetchedDays = -1;
+
+    @Label("Stored Days")
+    @Description("Days appended to the stored price history")
+    int storedDays;
+
+    public static PriceFetchEvent start(String item, boolean async) {
+        PriceFetchEvent event = new PriceFetchEvent();
+        event.item = item;
+        event.async = async;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param fetchedDays the days in the fetched price history, -1 if the fetch failed
+     * @param storedDays the days appended to the stored price history
+     */
+    public void finish(int fetchedDays, int storedDays) {
+        end();
+        if (shouldCommit()) {
+            this.fetchedDays = fetchedDays;
+            this.storedDays = storedDays;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package cla33ic.casefetcher.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.time.LocalDate;
+
+/**
+ * Lookup of an item's price on one date or on many at once, including a refresh of its price history if it does
+ * not cover the dates.
+ */
+@Name("cla33ic.casefetcher.PriceLookup")
+@Label("Price Lookup")
+@Category({"Case Fetcher", "Market"})
+@Description("Lookup of an item's price on a date")
+@StackTrace(false)
+public final class PriceLookupEvent extends Event {
+    @Label("Item")
+    String item;
+
+    @Label("Dates")
+    int dates;
+
+    @Label("Date")
+    @Description("The date of a single lookup")
+    String date;
+
+    @Label("Price")
+    double price;
+
+    public static PriceLookupEvent start(String item) {
+        PriceLookupEvent event = new PriceLookupEvent();
+        event.item = item;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param date the date looked up
+     * @param price the price found
+     */
+    public void finish(LocalDate date, double price) {
+        end();
+        if (shouldCommit()) {
+            this.dates = 1;
+            this.date = date.toString();
+            this.price = price;
+            commit();
+        }
+    }
+
+    /**
+     * @param dates the number of dates looked up at once
+     */
+    public void finish(int dates) {
+        end();
+        if (shouldCommit()) {
+            this.dates = dates;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package cla33ic.casefetcher.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Time a request waited for the rate limiter of its endpoint.
+ */
+@Name("cla33ic.casefetcher.RateLimiterWait")
+@Label("Rate Limiter Wait")
+@Category({"Case Fetcher", "HTTP"})
+@Description("Time a request waited for the rate limiter of its endpoint")
+@StackTrace(false)
+public final class RateLimiterWaitEvent extends Event {
+    @Label("Endpoint")
+    String endpoint;
+
+    public static RateLimiterWaitEvent start(String endpoint) {
+        RateLimiterWaitEvent event = new RateLimiterWaitEvent();
+        event.endpoint = endpoint;
+        event.begin();
+        return event;
+    }
+
+    public void finish() {
+        end();
+        if (shouldCommit()) {
+            commit();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package cla33ic.casefetcher.model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Column-wise copy of a list of case opening events: one primitive array per field and a bit set of the rental
+ * flags. Aggregations scan only the columns they need, and large stores are split into chunks that are aggregated
+ * in parallel.
+ */
+public class CaseOpeningColumns {
+    // Events per chunk of a parallel scan; smaller stores are scanned on the calling thread
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final long[] epochSeconds;
+    private final int[] caseIds;
+    private final int[] keyIds;
+    private final int[] itemIds;
+    private final int[] rarityIds;
+    private final double[] casePrices;
+    private final BitSet rentals;
+    private final int size;
+
+    private CaseOpeningColumns(int size) {
+        this.epochSeconds = new long[size];
+        this.caseIds = new int[size];
+        this.keyIds = new int[size];
+        this.itemIds = new int[size];
+        this.rarityIds = new int[size];
+        this.casePrices = new double[size];
+        this.rentals = new BitSet(size);
+        this.size = size;
+    }
+
+    public static CaseOpeningColumns of(List<CaseOpeningEvent> events) {
+        CaseOpeningColumns columns = new CaseOpeningColumns(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            CaseOpeningEvent event = events.get(i);
+            columns.epochSeconds[i] = event.epochSecond();
+            columns.caseIds[i] = event.caseId();
+            columns.keyIds[i] = event.keyId();
+            columns.itemIds[i] = event.itemId();
+            columns.rarityIds[i] = event.rarityId();
+            columns.casePrices[i] = event.casePrice();
+            columns.rentals.set(i, event.isRental());
+        }
+        return columns;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public CaseOpeningEvent get(int index) {
+        return new CaseOpeningEvent(epochSeconds[index], caseIds[index], keyIds[index], itemIds[index],
+                rarityIds[index], casePrices[index], rentals.get(index));
+    }
+
+    /**
+     * @return the events in their original order, with the current case prices
+     */
+    public List<CaseOpeningEvent> toEvents() {
+        List<CaseOpeningEvent> events = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            events.add(get(i));
+        }
+        return events;
+    }
+
+    /**
+     * Replaces the case price of every event with the price the given source reports for its case and day; events
+     * without a case keep their price. Consecutive events of the same case on the same day are priced with a single
+     * lookup.
+     */
+    public void reprice(PriceSource priceSource) {
+        int lastCaseId = SymbolTable.NO_SYMBOL;
+        long lastEpochDay = Long.MIN_VALUE;
+        double lastPrice = 0;
+        for (int i = 0; i < size; i++) {
+            if (caseIds[i] == SymbolTable.NO_SYMBOL) {
+                continue;
+            }
+            long epochDay = Math.floorDiv(epochSeconds[i], 86_400L);
+            if (caseIds[i] != lastCaseId || epochDay != lastEpochDay) {
+                lastCaseId = caseIds[i];
+                lastEpochDay = epochDay;
+                lastPrice = priceSource.priceOf(lastCaseId, epochDay);
+            }
+            casePrices[i] = lastPrice;
+        }
+    }
+
+    public double totalCaseCost() {
+        double total = 0;
+        for (int i = 0; i < size; i++) {
+            total += casePrices[i];
+        }
+        return total;
+    }
+
+    /**
+     * Counts the cases, items and rarities and totals the costs of all events.
+     * @param keyPrice the price charged per key
+     * @return the summary
+     */
+    public CaseOpeningSummary summarize(double keyPrice) {
+        int symbolCount = SymbolTable.size() + 1;
+        int chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        Counts counts = chunks <= 1
+                ? count(0, size, symbolCount)
+                : IntStream.range(0, chunks).parallel()
+                        .mapToObj(chunk -> count(chunk * CHUNK_SIZE, Math.min(size, (chunk + 1) * CHUNK_SIZE), symbolCount))
+                        .reduce(Counts::add)
+                        .orElseThrow();
+
+        Map<String, Integer> caseStats = new HashMap<>();
+        Map<String, Integer> itemStats = new HashMap<>();
+        Map<String, Long> rarityStats = new HashMap<>();
+        for (int slot = 0; slot < symbolCount; slot++) {
+            String name = SymbolTable.name(slot - 1);
+            if (counts.cases[slot] > 0) {
+                caseStats.put(name, counts.cases[slot]);
+            }
+            if (counts.items[slot] > 0) {
+                itemStats.put(name, counts.items[slot]);
+            }
+            if (counts.rarities[slot] > 0) {
+                rarityStats.put(name, (long) counts.rarities[slot]);
+            }
+        }
+        return new CaseOpeningSummary(caseStats, itemStats, rarityStats, size, size * keyPrice, counts.caseCost);
+    }
+
+    /**
+     * Counts of one chunk of events, indexed by symbol id + 1 so that slot 0 counts events without a name.
+     */
+    private Counts count(int from, int to, int symbolCount) {
+        Counts counts = new Counts(symbolCount);
+        for (int i = from; i < to; i++) {
+            counts.cases[caseIds[i] + 1]++;
+            counts.items[itemIds[i] + 1]++;
+            counts.rarities[rarityIds[i] + 1]++;
+            counts.caseCost += casePrices[i];
+        }
+        return counts;
+    }
+
+    /**
+     * Price of a case on a day, by case symbol id and epoch day.
+     */
+    @FunctionalInterface
+    public interface PriceSource {
+        double priceOf(int caseId, long epochDay);
+    }
+
+    private static final class Counts {
+        private final int[] cases;
+        private final int[] items;
+        private final int[] rarities;
+        private double caseCost;
+
+        private Counts(int symbolCount) {
+            cases = new int[symbolCount];
+            items = new int[symbolCount];
+            rarities = new int[symbolCount];
+        }
+
+        private Counts add(Counts other) {
+            for (int slot = 0; slot < cases.length; slot++) {
+                cases[slot] += other.cases[slot];
+                items[slot] += other.items[slot];
+                rarities[slot] += other.rarities[slot];
+            }
+            caseCost += other.caseCost;
+            return this;
+        }
+    }
+}
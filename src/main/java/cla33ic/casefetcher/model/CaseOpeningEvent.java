@@ -1,27 +1,71 @@
 package cla33ic.casefetcher.model;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 
+/**
+ * A single case opening. Names are stored as {@link SymbolTable} ids and the time as UTC epoch seconds, so an
+ * event takes a few dozen bytes; the accessors without an id suffix resolve them for rendering.
+ */
 public record CaseOpeningEvent(
-        LocalDateTime dateTime,
-        String caseOpened,
-        String keyUsed,
-        String itemReceived,
-        String rarity,
+        long epochSecond,
+        int caseId,
+        int keyId,
+        int itemId,
+        int rarityId,
         double casePrice,
         boolean isRental
 ) {
+    /**
+     * Case price of an event whose price has not been resolved from the market yet.
+     */
+    public static final double PRICE_PENDING = Double.NaN;
+
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss");
 
+    public CaseOpeningEvent(LocalDateTime dateTime, String caseOpened, String keyUsed, String itemReceived,
+                            String rarity, double casePrice, boolean isRental) {
+        this(dateTime.toEpochSecond(ZoneOffset.UTC), SymbolTable.intern(caseOpened), SymbolTable.intern(keyUsed),
+                SymbolTable.intern(itemReceived), SymbolTable.intern(rarity), casePrice, isRental);
+    }
+
+    public LocalDateTime dateTime() {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    public String caseOpened() {
+        return SymbolTable.name(caseId);
+    }
+
+    public String keyUsed() {
+        return SymbolTable.name(keyId);
+    }
+
+    public String itemReceived() {
+        return SymbolTable.name(itemId);
+    }
+
+    public String rarity() {
+        return SymbolTable.name(rarityId);
+    }
+
+    public boolean hasPendingPrice() {
+        return Double.isNaN(casePrice);
+    }
+
+    public CaseOpeningEvent withCasePrice(double price) {
+        return new CaseOpeningEvent(epochSecond, caseId, keyId, itemId, rarityId, price, isRental);
+    }
+
     @Override
     public String toString() {
-        String dateStr = dateTime.format(DATE_FORMATTER);
-        String caseStr = caseOpened + " (" + String.format("%.2f€", casePrice) + ")";
-        String itemStr = isRental ? "Rental Item" : itemReceived;
-        String rarityStr = "(" + rarity + ")";
+        String dateStr = dateTime().format(DATE_FORMATTER);
+        String caseStr = caseOpened() + " (" + String.format("%.2f€", casePrice) + ")";
+        String itemStr = isRental ? "Rental Item" : itemReceived();
+        String rarityStr = "(" + rarity() + ")";
         String rentalStr = isRental ? " [RENTAL]" : "";
 
         return String.format("%s - %s: %s %s%s", dateStr, caseStr, itemStr, rarityStr, rentalStr);
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,5 @@
 package cla33ic.casefetcher.model;
 
-import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -10,8 +9,7 @@ public record CaseOpeningSummary(
         Map<String, Long> rarityStats,
         int totalCases,
         double totalKeyCost,
-        double totalCaseCost,
-        List<CaseOpeningEvent> events
+        double totalCaseCost
 ) {
     public double getTotalCost() {
         return totalKeyCost + totalCaseCost;
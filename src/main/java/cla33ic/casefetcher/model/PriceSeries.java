@@ -0,0 +1,184 @@
+package cla33ic.casefetcher.model;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Immutable daily price history of a market item: one price per day, in two parallel primitive arrays sorted by
+ * day. Lookups are binary searches; {@link #floorPrices} resolves many dates in a single merge pass.
+ */
+public final class PriceSeries {
+    private static final PriceSeries EMPTY = new PriceSeries(new int[0], new double[0]);
+
+    private final int[] epochDays;
+    private final double[] prices;
+
+    private PriceSeries(int[] epochDays, double[] prices) {
+        this.epochDays = epochDays;
+        this.prices = prices;
+    }
+
+    public static PriceSeries empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param expectedSize the expected number of prices, to size the builder's arrays
+     */
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    public int size() {
+        return epochDays.length;
+    }
+
+    public boolean isEmpty() {
+        return epochDays.length == 0;
+    }
+
+    public int epochDayAt(int index) {
+        return epochDays[index];
+    }
+
+    public LocalDate dateAt(int index) {
+        return LocalDate.ofEpochDay(epochDays[index]);
+    }
+
+    public double priceAt(int index) {
+        return prices[index];
+    }
+
+    /**
+     * @return the index of the last day on or before the given day, or -1 if there is none
+     */
+    public int floorIndex(long epochDay) {
+        int index = search(epochDay);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * @return the index of the first day on or after the given day, or -1 if there is none
+     */
+    public int ceilingIndex(long epochDay) {
+        int index = search(epochDay);
+        int ceiling = index >= 0 ? index : -index - 1;
+        return ceiling < epochDays.length ? ceiling : -1;
+    }
+
+    /**
+     * Resolves the prices of many days in one pass over both arrays: the price on each day, or else on the closest
+     * earlier day, or, for days before the first one, on the first day.
+     * @param sortedEpochDays the days to look up, in ascending order
+     * @param result receives the price of each day, at the same index; must be at least as long as the days
+     * @return the number of days whose price was taken from another day
+     * @throws IllegalStateException if the series is empty
+     */
+    public int floorPrices(int[] sortedEpochDays, double[] result) {
+        if (isEmpty()) {
+            throw new IllegalStateException("No prices to look up");
+        }
+        int approximated = 0;
+        int index = 0;
+        for (int i = 0; i < sortedEpochDays.length; i++) {
+            int day = sortedEpochDays[i];
+            // The series position only moves forward, as the days are sorted
+            while (index + 1 < epochDays.length && epochDays[index + 1] <= day) {
+                index++;
+            }
+            result[i] = prices[index];
+            if (epochDays[index] != day) {
+                approximated++;
+            }
+        }
+        return approximated;
+    }
+
+    private int search(long epochDay) {
+        if (epochDay > Integer.MAX_VALUE) {
+            return -epochDays.length - 1;
+        }
+        if (epochDay < Integer.MIN_VALUE) {
+            return -1;
+        }
+        return Arrays.binarySearch(epochDays, (int) epochDay);
+    }
+
+    /**
+     * Collects prices in any order. If a day is added more than once, the price added last is kept, like the
+     * last of several intraday prices.
+     */
+    public static final class Builder {
+        private int[] epochDays;
+        private double[] prices;
+        private int size;
+        private boolean sorted = true;
+
+        private Builder(int expectedSize) {
+            this.epochDays = new int[Math.max(expectedSize, 4)];
+            this.prices = new double[epochDays.length];
+        }
+
+        public Builder add(LocalDate date, double price) {
+            return add((int) date.toEpochDay(), price);
+        }
+
+        public Builder add(int epochDay, double price) {
+            if (size > 0 && epochDays[size - 1] == epochDay) {
+                prices[size - 1] = price;
+                return this;
+            }
+            if (size > 0 && epochDays[size - 1] > epochDay) {
+                sorted = false;
+            }
+            if (size == epochDays.length) {
+                epochDays = Arrays.copyOf(epochDays, size * 2);
+                prices = Arrays.copyOf(prices, size * 2);
+            }
+            epochDays[size] = epochDay;
+            prices[size] = price;
+            size++;
+            return this;
+        }
+
+        public PriceSeries build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            if (!sorted) {
+                sortKeepingLast();
+            }
+            return new PriceSeries(Arrays.copyOf(epochDays, size), Arrays.copyOf(prices, size));
+        }
+
+        /**
+         * Sorts the prices by day and drops all but the last added price of each day.
+         */
+        private void sortKeepingLast() {
+            // Day in the high bits and insertion order in the low bits, so that equal days keep their order
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = ((long) epochDays[i] << 32) | i;
+            }
+            Arrays.sort(keys);
+            int[] sortedDays = new int[size];
+            double[] sortedPrices = new double[size];
+            int count = 0;
+            for (long key : keys) {
+                int day = (int) (key >> 32);
+                double price = prices[(int) key];
+                if (count > 0 && sortedDays[count - 1] == day) {
+                    sortedPrices[count - 1] = price;
+                } else {
+                    sortedDays[count] = day;
+                    sortedPrices[count] = price;
+                    count++;
+                }
+            }
+            epochDays = sortedDays;
+            prices = sortedPrices;
+            size = count;
+            sorted = true;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package cla33ic.casefetcher.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rarity of a received item, as given by the color of its "Rarity" tag.
+ */
+public enum Rarity {
+    CONSUMER_GRADE("b0c3d9", "Consumer Grade (White)"),
+    INDUSTRIAL_GRADE("5e98d9", "Industrial Grade (Light Blue)"),
+    MIL_SPEC("4b69ff", "Mil-Spec (Blue)"),
+    RESTRICTED("8847ff", "Restricted (Purple)"),
+    CLASSIFIED("d32ce6", "Classified (Pink)"),
+    COVERT("eb4b4b", "Covert (Red)"),
+    RARE_SPECIAL_ITEM("e4ae39", "Rare Special Item (Gold)"),
+    RENTAL(null, "Rental"),
+    UNKNOWN(null, "Unknown");
+
+    private static final Map<String, Rarity> BY_COLOR = new HashMap<>();
+
+    static {
+        for (Rarity rarity : values()) {
+            if (rarity.colorCode != null) {
+                BY_COLOR.put(rarity.colorCode, rarity);
+            }
+        }
+    }
+
+    private final String colorCode;
+    private final String displayName;
+
+    Rarity(String colorCode, String displayName) {
+        this.colorCode = colorCode;
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public static Rarity fromColorCode(String colorCode) {
+        return BY_COLOR.getOrDefault(colorCode, UNKNOWN);
+    }
+
+    /**
+     * @return the display name of the rarity with the color, or {@code Unknown (<color>)} for a color not in the table
+     */
+    public static String displayNameOf(String colorCode) {
+        Rarity rarity = fromColorCode(colorCode);
+        return rarity == UNKNOWN ? UNKNOWN.displayName + " (" + colorCode + ")" : rarity.displayName;
+    }
+}
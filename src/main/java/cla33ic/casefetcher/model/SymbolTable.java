@@ -0,0 +1,61 @@
+package cla33ic.casefetcher.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide dictionary of the names referenced by case opening events: cases, keys, items and rarities.
+ * <p>
+ * Every distinct name is stored once and identified by a small integer id, assigned in order of first use.
+ * Ids are only meaningful within the running process and are never persisted.
+ */
+public final class SymbolTable {
+    /**
+     * Id standing for a {@code null} name.
+     */
+    public static final int NO_SYMBOL = -1;
+
+    private static final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    // Only grown while holding the class lock; a name is stored before its id is published through the map
+    private static volatile String[] names = new String[256];
+    private static int size;
+
+    private SymbolTable() {
+        // Private constructor to prevent instantiation
+    }
+
+    public static int intern(String name) {
+        if (name == null) {
+            return NO_SYMBOL;
+        }
+        Integer id = ids.get(name);
+        return id != null ? id : add(name);
+    }
+
+    public static String name(int id) {
+        return id == NO_SYMBOL ? null : names[id];
+    }
+
+    /**
+     * @return the number of ids assigned so far; all ids are below it
+     */
+    public static synchronized int size() {
+        return size;
+    }
+
+    private static synchronized int add(String name) {
+        Integer existing = ids.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        String[] current = names;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, size * 2);
+            names = current;
+        }
+        current[size] = name;
+        ids.put(name, size);
+        return size++;
+    }
+}
@@ -0,0 +1,38 @@
+package cla33ic.casefetcher.report;
+
+import cla33ic.casefetcher.model.CaseOpeningEvent;
+import cla33ic.casefetcher.model.CaseOpeningSummary;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * RFC 4180 CSV export of the events, with one header row.
+ */
+public class CsvReportWriter extends ReportWriter {
+    private static final String HEADER = "date_time,case,case_price,key,item,rarity,rental";
+
+    public CsvReportWriter(Writer sink) {
+        super(sink);
+    }
+
+    @Override
+    public void writeHeader(CaseOpeningSummary summary) throws IOException {
+        write(HEADER);
+        write(System.lineSeparator());
+    }
+
+    @Override
+    protected void appendEvent(CaseOpeningEvent event) {
+        ReportFormatting.appendIsoDateTime(row, event.dateTime());
+        row.append(',');
+        ReportFormatting.appendCsvField(row, event.caseOpened());
+        row.append(',').append(event.casePrice()).append(',');
+        ReportFormatting.appendCsvField(row, event.keyUsed());
+        row.append(',');
+        ReportFormatting.appendCsvField(row, event.itemReceived());
+        row.append(',');
+        ReportFormatting.appendCsvField(row, event.rarity());
+        row.append(',').append(event.isRental());
+    }
+}
@@ -0,0 +1,42 @@
+package cla33ic.casefetcher.report;
+
+import cla33ic.casefetcher.model.CaseOpeningEvent;
+import cla33ic.casefetcher.model.CaseOpeningSummary;
+
+import java.io.Writer;
+
+/**
+ * JSON Lines export of the events, one JSON object per line.
+ */
+public class JsonLinesReportWriter extends ReportWriter {
+
+    public JsonLinesReportWriter(Writer sink) {
+        super(sink);
+    }
+
+    @Override
+    public void writeHeader(CaseOpeningSummary summary) {
+        // JSON Lines has no header, every line is a complete event
+    }
+
+    @Override
+    protected void appendEvent(CaseOpeningEvent event) {
+        row.append("{\"dateTime\":\"");
+        ReportFormatting.appendIsoDateTime(row, event.dateTime());
+        row.append("\",\"case\":");
+        ReportFormatting.appendJsonString(row, event.caseOpened());
+        row.append(",\"casePrice\":");
+        if (Double.isFinite(event.casePrice())) {
+            row.append(event.casePrice());
+        } else {
+            row.append("null");
+        }
+        row.append(",\"key\":");
+        ReportFormatting.appendJsonString(row, event.keyUsed());
+        row.append(",\"item\":");
+        ReportFormatting.appendJsonString(row, event.itemReceived());
+        row.append(",\"rarity\":");
+        ReportFormatting.appendJsonString(row, event.rarity());
+        row.append(",\"rental\":").append(event.isRental()).append('}');
+    }
+}
@@ -0,0 +1,31 @@
+package cla33ic.casefetcher.report;
+
+import java.util.Locale;
+
+/**
+ * Output formats of the case opening report.
+ */
+public enum ReportFormat {
+    TEXT("txt"),
+    CSV("csv"),
+    JSON_LINES("jsonl");
+
+    private final String fileExtension;
+
+    ReportFormat(String fileExtension) {
+        this.fileExtension = fileExtension;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    public static ReportFormat fromName(String name) {
+        return switch (name.toLowerCase(Locale.ROOT)) {
+            case "text", "txt" -> TEXT;
+            case "csv" -> CSV;
+            case "jsonl", "json-lines" -> JSON_LINES;
+            default -> throw new IllegalArgumentException("Unknown report format: " + name);
+        };
+    }
+}
@@ -0,0 +1,130 @@
+package cla33ic.casefetcher.report;
+
+import java.time.LocalDateTime;
+
+/**
+ * Allocation-free formatters that append report fields to a row buffer.
+ */
+final class ReportFormatting {
+
+    private ReportFormatting() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Appends the date time as {@code dd.MM.yyyy HH:mm:ss}.
+     */
+    static void appendDisplayDateTime(StringBuilder row, LocalDateTime dateTime) {
+        appendTwoDigits(row, dateTime.getDayOfMonth());
+        row.append('.');
+        appendTwoDigits(row, dateTime.getMonthValue());
+        row.append('.').append(dateTime.getYear()).append(' ');
+        appendTwoDigits(row, dateTime.getHour());
+        row.append(':');
+        appendTwoDigits(row, dateTime.getMinute());
+        row.append(':');
+        appendTwoDigits(row, dateTime.getSecond());
+    }
+
+    /**
+     * Appends the date time as ISO-8601 local date time with seconds, {@code yyyy-MM-ddTHH:mm:ss}.
+     */
+    static void appendIsoDateTime(StringBuilder row, LocalDateTime dateTime) {
+        row.append(dateTime.getYear()).append('-');
+        appendTwoDigits(row, dateTime.getMonthValue());
+        row.append('-');
+        appendTwoDigits(row, dateTime.getDayOfMonth());
+        row.append('T');
+        appendTwoDigits(row, dateTime.getHour());
+        row.append(':');
+        appendTwoDigits(row, dateTime.getMinute());
+        row.append(':');
+        appendTwoDigits(row, dateTime.getSecond());
+    }
+
+    /**
+     * Appends the price rounded half-up to two decimals, like {@code %.2f}.
+     */
+    static void appendPrice(StringBuilder row, double price, char decimalSeparator) {
+        if (!Double.isFinite(price) || Math.abs(price) >= 1e15) {
+            row.append(String.format("%.2f", price));
+            return;
+        }
+        // The epsilon rounds prices like 0.355, which are stored slightly below the half, up as %.2f does
+        long cents = (long) Math.floor(Math.abs(price) * 100 + 0.5 + 1e-9);
+        if (price < 0) {
+            row.append('-');
+        }
+        row.append(cents / 100).append(decimalSeparator);
+        appendTwoDigits(row, (int) (cents % 100));
+    }
+
+    static void appendTwoDigits(StringBuilder row, int value) {
+        if (value < 10) {
+            row.append('0');
+        }
+        row.append(value);
+    }
+
+    /**
+     * Appends a CSV field, quoting it if it contains a separator, quote or line break.
+     */
+    static void appendCsvField(StringBuilder row, String value) {
+        if (value == null) {
+            return;
+        }
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            row.append(value);
+            return;
+        }
+        row.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                row.append('"');
+            }
+            row.append(c);
+        }
+        row.append('"');
+    }
+
+    /**
+     * Appends a JSON string literal, or {@code null}.
+     */
+    static void appendJsonString(StringBuilder row, String value) {
+        if (value == null) {
+            row.append("null");
+            return;
+        }
+        row.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> row.append("\\\"");
+                case '\\' -> row.append("\\\\");
+                case '\n' -> row.append("\\n");
+                case '\r' -> row.append("\\r");
+                case '\t' -> row.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        row.append("\\u00");
+                        appendHexDigit(row, c >> 4);
+                        appendHexDigit(row, c & 0xF);
+                    } else {
+                        row.append(c);
+                    }
+                }
+            }
+        }
+        row.append('"');
+    }
+
+    private static void appendHexDigit(StringBuilder row, int digit) {
+        row.append((char) (digit < 10 ? '0' + digit : 'a' + digit - 10));
+    }
+}
@@ -0,0 +1,79 @@
+package cla33ic.casefetcher.report;
+
+import cla33ic.casefetcher.model.CaseOpeningEvent;
+import cla33ic.casefetcher.model.CaseOpeningSummary;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Streams a case opening report to a character sink, one row at a time.
+ * <p>
+ * Rows are assembled in a reused buffer and handed to the sink as a char range, so rendering does not
+ * create a String per event. The sink should be buffered; it is flushed but never closed by this writer.
+ */
+public abstract class ReportWriter implements Flushable {
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    protected final StringBuilder row = new StringBuilder(256);
+    private final Writer sink;
+    private char[] chars = new char[256];
+
+    protected ReportWriter(Writer sink) {
+        this.sink = sink;
+    }
+
+    public static ReportWriter create(ReportFormat format, Writer sink) {
+        return switch (format) {
+            case TEXT -> new TextReportWriter(sink);
+            case CSV -> new CsvReportWriter(sink);
+            case JSON_LINES -> new JsonLinesReportWriter(sink);
+        };
+    }
+
+    /**
+     * Writes whatever precedes the event rows in this format, such as the summary or a column header.
+     */
+    public abstract void writeHeader(CaseOpeningSummary summary) throws IOException;
+
+    /**
+     * Writes the first {@code limit} events, or all events if the limit is negative.
+     * @return the number of events written
+     */
+    public int writeEvents(List<CaseOpeningEvent> events, int limit) throws IOException {
+        int count = limit < 0 ? events.size() : Math.min(limit, events.size());
+        for (int i = 0; i < count; i++) {
+            writeEvent(events.get(i));
+        }
+        return count;
+    }
+
+    public void writeEvent(CaseOpeningEvent event) throws IOException {
+        row.setLength(0);
+        appendEvent(event);
+        row.append(LINE_SEPARATOR);
+        writeRow();
+    }
+
+    protected abstract void appendEvent(CaseOpeningEvent event);
+
+    protected void write(String text) throws IOException {
+        sink.write(text);
+    }
+
+    protected void writeRow() throws IOException {
+        int length = row.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        row.getChars(0, length, chars, 0);
+        sink.write(chars, 0, length);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        sink.flush();
+    }
+}
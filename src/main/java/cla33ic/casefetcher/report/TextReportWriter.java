@@ -0,0 +1,39 @@
+package cla33ic.casefetcher.report;
+
+import cla33ic.casefetcher.model.CaseOpeningEvent;
+import cla33ic.casefetcher.model.CaseOpeningSummary;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.DecimalFormatSymbols;
+
+/**
+ * Human-readable report, rendering events the same way as {@link CaseOpeningEvent#toString()}.
+ */
+public class TextReportWriter extends ReportWriter {
+    // Same separator as String.format uses for the summary
+    private final char decimalSeparator = DecimalFormatSymbols.getInstance().getDecimalSeparator();
+
+    public TextReportWriter(Writer sink) {
+        super(sink);
+    }
+
+    @Override
+    public void writeHeader(CaseOpeningSummary summary) throws IOException {
+        write(summary.toString());
+        write("\n\nDetailed Case Opening Events:\n");
+    }
+
+    @Override
+    protected void appendEvent(CaseOpeningEvent event) {
+        ReportFormatting.appendDisplayDateTime(row, event.dateTime());
+        row.append(" - ").append(event.caseOpened()).append(" (");
+        ReportFormatting.appendPrice(row, event.casePrice(), decimalSeparator);
+        row.append("€): ")
+                .append(event.isRental() ? "Rental Item" : event.itemReceived())
+                .append(" (").append(event.rarity()).append(')');
+        if (event.isRental()) {
+            row.append(" [RENTAL]");
+        }
+    }
+}
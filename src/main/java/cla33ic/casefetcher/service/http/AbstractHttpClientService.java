@@ -1,31 +1,91 @@
 package cla33ic.casefetcher.service.http;
 
+import cla33ic.casefetcher.config.AppConfig;
 import cla33ic.casefetcher.exception.CaseFetcherException;
+import cla33ic.casefetcher.metrics.MetricsRegistry;
+import cla33ic.casefetcher.metrics.jfr.PageFetchEvent;
+import cla33ic.casefetcher.metrics.jfr.RateLimiterWaitEvent;
+import cla33ic.casefetcher.util.RateLimiter;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.entity.DeflateInputStream;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
 import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
-import org.apache.hc.core5.http.ParseException;
-import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpResponse;
 import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Abstract base class for HTTP client services.
+ * <p>
+ * Blocking requests go through the classic client. Asynchronous requests go through a shared async client
+ * that negotiates HTTP/2 where the server supports it; their rate limiting, backoff and retries are chained
+ * as continuations, so no thread waits on an in-flight or delayed request. When and how often a request is
+ * retried is decided by a {@link RetryPolicy}, by default the process-wide {@link DefaultRetryPolicy}.
+ * <p>
+ * Both clients request gzip or deflate compressed responses. The classic client negotiates and decodes them
+ * as a stream on its own (and brotli too, when its decoder is on the class path); the async client's bodies
+ * are decoded by {@link #decodeBody}.
+ * <p>
+ * The duration of every attempt, the time spent waiting for the rate limiter and the number of retries are
+ * recorded per endpoint in the global {@link MetricsRegistry}, and emitted as {@link PageFetchEvent} and
+ * {@link RateLimiterWaitEvent} to Java Flight Recorder.
  */
 public abstract class AbstractHttpClientService implements HttpClientService {
     private static final Logger logger = LoggerFactory.getLogger(AbstractHttpClientService.class);
     protected String cookie;
-    private static final int MAX_RETRIES = 10;
-    private static final long INITIAL_DELAY = 2000; // 2 seconds
-    private static final long MAX_DELAY = 128000; // 128 seconds
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
+    private static final String MARKET_SUFFIX = "/market";
+
+    // Rate limiters shared by all clients, keyed by host (see rateLimiterFor)
+    private static final Map<String, RateLimiter> rateLimiters = new ConcurrentHashMap<>();
+    private static final MetricsRegistry metrics = MetricsRegistry.global();
+
+    private final RetryPolicy retryPolicy;
 
     // Shared pooled HTTP client instance
     private static final PoolingHttpClientConnectionManager connectionManager;
@@ -34,7 +94,38 @@ public abstract class AbstractHttpClientService implements HttpClientService {
         connectionManager = new PoolingHttpClientConnectionManager();
         connectionManager.setMaxTotal(100);
         connectionManager.setDefaultMaxPerRoute(20);
-        client = HttpClients.custom().setConnectionManager(connectionManager).build();
+        // Retries are left to the retry policy, the client's own retry strategy would bypass it
+        client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .disableAutomaticRetries()
+                .build();
+    }
+
+    // Async client, only started once the first asynchronous request is made
+    private static final class AsyncClientHolder {
+        private static final CloseableHttpAsyncClient asyncClient;
+        static {
+            asyncClient = HttpAsyncClients.custom()
+                    .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create()
+                            .setMaxConnTotal(100)
+                            .setMaxConnPerRoute(20)
+                            // HTTP/2 where the server offers it via ALPN, HTTP/1.1 otherwise
+                            .setDefaultTlsConfig(TlsConfig.custom()
+                                    .setVersionPolicy(HttpVersionPolicy.NEGOTIATE)
+                                    .build())
+                            .build())
+                    .disableAutomaticRetries()
+                    .build();
+            asyncClient.start();
+        }
+    }
+
+    protected AbstractHttpClientService() {
+        this(DefaultRetryPolicy.shared());
+    }
+
+    protected AbstractHttpClientService(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
     }
 
     @Override
@@ -42,85 +133,648 @@ public abstract class AbstractHttpClientService implements HttpClientService {
         this.cookie = cookie;
     }
 
+    protected CompletableFuture<String> executeGetAsync(String url, Map<String, String> headers) {
+        return executeAsyncWithRetry(url, () -> asyncGetRequest(url, headers))
+                .thenCompose(response -> {
+                    try {
+                        return CompletableFuture.completedFuture(decodeBody(response));
+                    } catch (IOException e) {
+                        return CompletableFuture.failedFuture(e);
+                    }
+                });
+    }
+
+    /**
+     * Conditional GET: a 304 is passed to {@code bodyReader} with a {@code null} body instead of being treated as
+     * a failure, together with the validators of the response. Used by {@link CachingHttpClientService}.
+     */
+    protected <T> T executeConditionalGet(String url, Map<String, String> headers,
+                                          ConditionalBodyReader<T> bodyReader) throws IOException {
+        return executeWithRetry(url, fetchEvent -> {
+            HttpGet request = new HttpGet(url);
+            setHeaders(request, headers);
+            try (CloseableHttpResponse response = send(request)) {
+                int statusCode = response.getCode();
+                fetchEvent.setStatusCode(statusCode);
+                String etag = headerValue(response, HttpHeaders.ETAG);
+                String lastModified = headerValue(response, HttpHeaders.LAST_MODIFIED);
+                if (statusCode == 304) {
+                    return bodyReader.read(statusCode, etag, lastModified, null);
+                }
+                if (statusCode != 200) {
+                    throw new CaseFetcherException("HTTP request failed", statusCode, retryAfterMillis(response));
+                }
+                return readBody(response.getEntity(), fetchEvent,
+                        body -> bodyReader.read(statusCode, etag, lastModified, body));
+            }
+        });
+    }
+
+    /**
+     * Asynchronous counterpart of {@link #executeConditionalGet}. The body reader runs on the common pool,
+     * not on the I/O threads of the async client.
+     */
+    protected <T> CompletableFuture<T> executeConditionalGetAsync(String url, Map<String, String> headers,
+                                                                  ConditionalBodyReader<T> bodyReader) {
+        return executeAsyncWithRetry(url, () -> asyncGetRequest(url, headers))
+                .thenApplyAsync(response -> {
+                    try {
+                        Reader body = response.getCode() == 304 ? null : new StringReader(decodeBody(response));
+                        return bodyReader.read(response.getCode(), headerValue(response, HttpHeaders.ETAG),
+                                headerValue(response, HttpHeaders.LAST_MODIFIED), body);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    private SimpleHttpRequest asyncGetRequest(String url, Map<String, String> headers) {
+        SimpleRequestBuilder request = SimpleRequestBuilder.get(url);
+        headers.forEach(request::addHeader);
+        if (cookie != null && !headers.containsKey("Cookie")) {
+            request.addHeader("Cookie", cookie);
+        }
+        if (!headers.containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, ACCEPT_ENCODING);
+        }
+        return request.build();
+    }
+
     protected String executeGet(String url, Map<String, String> headers) throws IOException {
-        return executeWithRetry(() -> {
+        return executeWithRetry(url, fetchEvent -> {
             HttpGet request = new HttpGet(url);
             setHeaders(request, headers);
-            try (CloseableHttpResponse response = client.execute(request)) {
+            try (CloseableHttpResponse response = send(request)) {
                 int statusCode = response.getCode();
+                fetchEvent.setStatusCode(statusCode);
                 if (statusCode == 200) {
-                    return EntityUtils.toString(response.getEntity());
+                    return readBody(response.getEntity(), fetchEvent);
                 } else {
-                    throw new CaseFetcherException("HTTP request failed", statusCode);
+                    throw new CaseFetcherException("HTTP request failed", statusCode, retryAfterMillis(response));
+                }
+            }
+        });
+    }
+
+    /**
+     * Streaming variant of {@link #executeGet(String, Map)}: the decoded body is handed to {@code bodyReader}
+     * while it is received. Whatever the reader leaves unread is drained when the response is closed,
+     * so that the connection can be reused.
+     */
+    protected <T> T executeGet(String url, Map<String, String> headers, BodyReader<T> bodyReader) throws IOException {
+        return executeWithRetry(url, fetchEvent -> {
+            HttpGet request = new HttpGet(url);
+            setHeaders(request, headers);
+            try (CloseableHttpResponse response = send(request)) {
+                int statusCode = response.getCode();
+                fetchEvent.setStatusCode(statusCode);
+                if (statusCode != 200) {
+                    throw new CaseFetcherException("HTTP request failed", statusCode, retryAfterMillis(response));
                 }
-            } catch (ParseException e) {
-                throw new RuntimeException(e);
+                return readBody(response.getEntity(), fetchEvent, bodyReader);
             }
         });
     }
 
     protected String executePost(String url, Map<String, String> headers, String body) throws IOException {
-        return executeWithRetry(() -> {
+        return executeWithRetry(url, fetchEvent -> {
             HttpPost request = new HttpPost(url);
             setHeaders(request, headers);
             request.setEntity(new StringEntity(body));
-            try (CloseableHttpResponse response = client.execute(request)) {
+            try (CloseableHttpResponse response = send(request)) {
                 int statusCode = response.getCode();
+                fetchEvent.setStatusCode(statusCode);
                 if (statusCode == 200) {
-                    return EntityUtils.toString(response.getEntity());
+                    return readBody(response.getEntity(), fetchEvent);
                 } else {
-                    throw new CaseFetcherException("HTTP request failed", statusCode);
+                    throw new CaseFetcherException("HTTP request failed", statusCode, retryAfterMillis(response));
                 }
-            } catch (ParseException e) {
-                throw new RuntimeException(e);
             }
         });
     }
 
-    private void setHeaders(org.apache.hc.core5.http.ClassicHttpRequest request, Map<String, String> headers) {
+    /**
+     * Sends a request through the classic client. Failing to send it or to receive the response is a
+     * {@link TransportException}.
+     */
+    private static CloseableHttpResponse send(ClassicHttpRequest request) throws TransportException {
+        try {
+            return client.execute(request);
+        } catch (IOException e) {
+            throw new TransportException(e);
+        }
+    }
+
+    /**
+     * Reads a whole response body, recording the number of bytes received after decompression, as the streaming
+     * variants do; the entity's content length is unknown for compressed or chunked bodies.
+     */
+    private static String readBody(HttpEntity entity, PageFetchEvent fetchEvent) throws IOException {
+        if (entity == null) {
+            fetchEvent.setBytes(0);
+            return "";
+        }
+        return readBody(entity, fetchEvent, body -> {
+            StringWriter text = new StringWriter();
+            body.transferTo(text);
+            return text.toString();
+        });
+    }
+
+    /**
+     * Hands the decoded body to the reader while it is received, recording the number of bytes read. If receiving
+     * the body fails, the attempt fails with a {@link TransportException}, also when the reader has caught the
+     * failure and returned what it read up to it.
+     */
+    private static <T> T readBody(HttpEntity entity, PageFetchEvent fetchEvent, BodyReader<T> bodyReader)
+            throws IOException {
+        CountingInputStream content;
+        try {
+            content = new CountingInputStream(entity.getContent());
+        } catch (IOException e) {
+            throw new TransportException(e);
+        }
+        T result;
+        try (Reader body = new InputStreamReader(content, charsetOf(entity.getContentType()))) {
+            result = bodyReader.read(body);
+        } catch (IOException | RuntimeException e) {
+            if (content.getFailure() != null) {
+                throw new TransportException(content.getFailure());
+            }
+            throw e;
+        } finally {
+            fetchEvent.setBytes(content.getCount());
+        }
+        if (content.getFailure() != null) {
+            throw new TransportException(content.getFailure());
+        }
+        return result;
+    }
+
+    private void setHeaders(ClassicHttpRequest request, Map<String, String> headers) {
         headers.forEach(request::addHeader);
         if (cookie != null && !headers.containsKey("Cookie")) {
             request.addHeader("Cookie", cookie);
         }
     }
 
-    private String executeWithRetry(HttpOperation operation) throws IOException {
-        long delay = INITIAL_DELAY;
-        for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
-            String requestId = UUID.randomUUID().toString();
+    /**
+     * Runs the operation, retrying it as the retry policy decides. An attempt the policy does not admit, because
+     * the host keeps failing, waits until the policy admits it, so that a crawl outlasts a pause of the host
+     * instead of failing the pages requested during it; admitted attempts then wait for the host's rate limiter.
+     */
+    private <T> T executeWithRetry(String url, HttpOperation<T> operation) throws IOException {
+        String endpoint = endpointOf(url);
+        RateLimiter rateLimiter = rateLimiterFor(url);
+        String requestId = UUID.randomUUID().toString();
+        awaitAdmission(endpoint);
+        // The wait for the first admission does not count against the request's deadline
+        long firstStartTime = System.currentTimeMillis();
+        long delay = 0;
+        int attempt = 1;
+        while (true) {
+            if (attempt > 1) {
+                awaitAdmission(endpoint);
+            }
+            long waitStartNanos = System.nanoTime();
+            RateLimiterWaitEvent waitEvent = RateLimiterWaitEvent.start(endpoint);
+            try {
+                rateLimiter.acquire();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Request interrupted", ie);
+            } finally {
+                waitEvent.finish();
+            }
+            metrics.histogram("casefetcher_ratelimiter_wait_seconds", "endpoint", endpoint).recordSince(waitStartNanos);
+
             long startTime = System.currentTimeMillis();
+            long startNanos = System.nanoTime();
+            PageFetchEvent fetchEvent = PageFetchEvent.start(url, endpoint, attempt);
             try {
-                String result = operation.execute();
-                long elapsed = System.currentTimeMillis() - startTime;
-                logger.info("Request {} completed in {} ms on attempt {}", requestId, elapsed, attempt);
+                T result = operation.execute(fetchEvent);
+                fetchEvent.finish();
+                recordAttempt(endpoint, startNanos);
+                rateLimiter.onSuccess();
+                retryPolicy.onSuccess(attemptOf(requestId, endpoint, attempt, firstStartTime, startTime, 200, 0));
                 return result;
             } catch (CaseFetcherException e) {
-                long elapsed = System.currentTimeMillis() - startTime;
-                logger.error("Request {} failed in {} ms on attempt {} with status {}: {}",
-                        requestId, elapsed, attempt, e.getStatusCode(), e.getMessage());
-                if (e.getStatusCode() == 429 || e.getStatusCode() >= 500) {
-                    logger.warn("Request {} will be retried. (Attempt {} of {})", requestId, attempt, MAX_RETRIES);
-                    if (attempt < MAX_RETRIES) {
-                        try {
-                            Thread.sleep(delay);
-                        } catch (InterruptedException ie) {
-                            Thread.currentThread().interrupt();
-                            throw new IOException("Request interrupted", ie);
+                fetchEvent.finish();
+                recordAttempt(endpoint, startNanos);
+                onThrottled(endpoint, rateLimiter, e);
+                delay = retryPolicy.onFailure(attemptOf(requestId, endpoint, attempt, firstStartTime, startTime,
+                        e.getStatusCode(), e.getRetryAfterMillis()), delay);
+                if (delay == RetryPolicy.GIVE_UP) {
+                    if (!DefaultRetryPolicy.isRetryable(e.getStatusCode())) {
+                        throw e;
+                    }
+                    throw retriesExhausted(e, attempt);
+                }
+                metrics.counter("casefetcher_http_retries_total", "endpoint", endpoint).increment();
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Request interrupted", ie);
+                }
+                attempt++;
+            } catch (TransportException e) {
+                fetchEvent.finish();
+                recordAttempt(endpoint, startNanos);
+                IOException cause = e.getCause();
+                if (!DefaultRetryPolicy.isRetryable(cause)) {
+                    throw cause;
+                }
+                delay = retryPolicy.onFailure(attemptOf(requestId, endpoint, attempt, firstStartTime, startTime,
+                        RetryPolicy.NO_RESPONSE, 0), delay);
+                if (delay == RetryPolicy.GIVE_UP) {
+                    throw retriesExhausted(cause, attempt);
+                }
+                logger.warn("Request to {} failed without a response: {}", endpoint, cause.toString());
+                metrics.counter("casefetcher_http_retries_total", "endpoint", endpoint).increment();
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Request interrupted", ie);
+                }
+                attempt++;
+            } catch (IOException | RuntimeException e) {
+                fetchEvent.finish();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Blocks until the retry policy admits an attempt to the endpoint.
+     */
+    private void awaitAdmission(String endpoint) throws IOException {
+        long admissionDelay = retryPolicy.admit(endpoint);
+        if (admissionDelay <= 0) {
+            return;
+        }
+        logger.warn("Requests to {} are paused after repeated failures, waiting {} ms", endpoint, admissionDelay);
+        try {
+            do {
+                Thread.sleep(admissionDelay);
+                admissionDelay = retryPolicy.admit(endpoint);
+            } while (admissionDelay > 0);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Request interrupted", ie);
+        }
+    }
+
+    /**
+     * Asynchronous counterpart of {@link #executeWithRetry}: waiting for admission and the rate limiter, sending
+     * the request and the delays before retries are chained as continuations, without blocking a thread.
+     */
+    private CompletableFuture<SimpleHttpResponse> executeAsyncWithRetry(String url,
+                                                                        Supplier<SimpleHttpRequest> requestFactory) {
+        return executeAsyncWithRetry(url, requestFactory, UUID.randomUUID().toString(), System.currentTimeMillis(),
+                1, 0);
+    }
+
+    private CompletableFuture<SimpleHttpResponse> executeAsyncWithRetry(String url,
+                                                                        Supplier<SimpleHttpRequest> requestFactory,
+                                                                        String requestId, long firstStartTime,
+                                                                        int attempt, long delay) {
+        String endpoint = endpointOf(url);
+        long admissionDelay = retryPolicy.admit(endpoint);
+        if (admissionDelay > 0) {
+            return after(admissionDelay, () -> executeAsyncWithRetry(url, requestFactory, requestId,
+                    attempt == 1 ? System.currentTimeMillis() + admissionDelay : firstStartTime, attempt, delay));
+        }
+
+        RateLimiter rateLimiter = rateLimiterFor(url);
+        long waitStartNanos = System.nanoTime();
+        RateLimiterWaitEvent waitEvent = RateLimiterWaitEvent.start(endpoint);
+        AsyncAttempt sent = new AsyncAttempt();
+        return rateLimiter.acquireAsync()
+                .thenCompose(ignored -> {
+                    waitEvent.finish();
+                    metrics.histogram("casefetcher_ratelimiter_wait_seconds", "endpoint", endpoint)
+                            .recordSince(waitStartNanos);
+                    sent.startTime = System.currentTimeMillis();
+                    sent.startNanos = System.nanoTime();
+                    sent.fetchEvent = PageFetchEvent.start(url, endpoint, attempt);
+                    return sendAsync(requestFactory.get());
+                })
+                .handle((response, failure) -> {
+                    if (sent.fetchEvent != null) {
+                        sent.finish(endpoint, response, failure);
+                    }
+                    if (failure == null) {
+                        rateLimiter.onSuccess();
+                        retryPolicy.onSuccess(attemptOf(requestId, endpoint, attempt, firstStartTime, sent.startTime,
+                                response.getCode(), 0));
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                            ? failure.getCause() : failure;
+                    long nextDelay;
+                    if (cause instanceof CaseFetcherException e) {
+                        onThrottled(endpoint, rateLimiter, e);
+                        nextDelay = retryPolicy.onFailure(attemptOf(requestId, endpoint, attempt, firstStartTime,
+                                sent.startTime, e.getStatusCode(), e.getRetryAfterMillis()), delay);
+                        if (nextDelay == RetryPolicy.GIVE_UP) {
+                            return CompletableFuture.<SimpleHttpResponse>failedFuture(
+                                    DefaultRetryPolicy.isRetryable(e.getStatusCode()) ? retriesExhausted(e, attempt) : e);
+                        }
+                    } else if (sent.fetchEvent != null && cause instanceof IOException e
+                            && DefaultRetryPolicy.isRetryable(e)) {
+                        nextDelay = retryPolicy.onFailure(attemptOf(requestId, endpoint, attempt, firstStartTime,
+                                sent.startTime, RetryPolicy.NO_RESPONSE, 0), delay);
+                        if (nextDelay == RetryPolicy.GIVE_UP) {
+                            return CompletableFuture.<SimpleHttpResponse>failedFuture(retriesExhausted(e, attempt));
                         }
-                        delay = Math.min(delay * 2, MAX_DELAY);
+                        logger.warn("Request to {} failed without a response: {}", endpoint, e.toString());
                     } else {
-                        throw new IOException("Max retries reached. Unable to complete the request.", e);
+                        return CompletableFuture.<SimpleHttpResponse>failedFuture(cause);
                     }
+                    metrics.counter("casefetcher_http_retries_total", "endpoint", endpoint).increment();
+                    return after(nextDelay, () -> executeAsyncWithRetry(url, requestFactory, requestId,
+                            firstStartTime, attempt + 1, nextDelay));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private static <T> CompletableFuture<T> after(long delayMillis, Supplier<CompletableFuture<T>> next) {
+        Executor delayed = CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS);
+        return CompletableFuture.supplyAsync(() -> null, delayed).thenCompose(ignored -> next.get());
+    }
+
+    private static void recordAttempt(String endpoint, long startNanos) {
+        metrics.histogram("casefetcher_http_request_seconds", "endpoint", endpoint).recordSince(startNanos);
+    }
+
+    private static RetryPolicy.Attempt attemptOf(String requestId, String endpoint, int attempt, long firstStartTime,
+                                                 long startTime, int statusCode, long retryAfterMillis) {
+        return new RetryPolicy.Attempt(requestId, endpoint, attempt, startTime - firstStartTime,
+                System.currentTimeMillis() - startTime, statusCode, retryAfterMillis);
+    }
+
+    /**
+     * Lowers the rate of the endpoint's rate limiter if the request was throttled.
+     */
+    private static void onThrottled(String endpoint, RateLimiter rateLimiter, CaseFetcherException e) {
+        if (e.getStatusCode() == 429) {
+            rateLimiter.onThrottled(e.getRetryAfterMillis());
+            logger.warn("Throttled by {}, lowering the request rate to {} per second",
+                    endpoint, String.format("%.2f", rateLimiter.getRate()));
+        }
+    }
+
+    private static IOException retriesExhausted(Exception e, int attempts) {
+        return new IOException("Giving up after " + attempts + " attempts. Unable to complete the request.", e);
+    }
+
+    /**
+     * Sends a request through the async client. A 304 only occurs for conditional requests and counts as success.
+     */
+    private static CompletableFuture<SimpleHttpResponse> sendAsync(SimpleHttpRequest request) {
+        CompletableFuture<SimpleHttpResponse> result = new CompletableFuture<>();
+        AsyncClientHolder.asyncClient.execute(request, new FutureCallback<>() {
+            @Override
+            public void completed(SimpleHttpResponse response) {
+                if (response.getCode() == 200 || response.getCode() == 304) {
+                    result.complete(response);
                 } else {
-                    throw e;
+                    result.completeExceptionally(new CaseFetcherException("HTTP request failed", response.getCode(),
+                            retryAfterMillis(response)));
+                }
+            }
+
+            @Override
+            public void failed(Exception e) {
+                result.completeExceptionally(e instanceof IOException ? e : new IOException(e));
+            }
+
+            @Override
+            public void cancelled() {
+                result.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Decodes the body of an async response according to its Content-Encoding and charset.
+     */
+    private static String decodeBody(SimpleHttpResponse response) throws IOException {
+        byte[] body = response.getBodyBytes();
+        if (body == null) {
+            return "";
+        }
+        Header contentEncoding = response.getFirstHeader(HttpHeaders.CONTENT_ENCODING);
+        String encoding = contentEncoding == null ? "identity" : contentEncoding.getValue().trim().toLowerCase(Locale.ROOT);
+        InputStream decoded = switch (encoding) {
+            case "gzip", "x-gzip" -> new GZIPInputStream(new ByteArrayInputStream(body));
+            case "deflate" -> new DeflateInputStream(new ByteArrayInputStream(body));
+            case "identity" -> null;
+            default -> throw new IOException("Unsupported content encoding: " + encoding);
+        };
+        Charset charset = charsetOf(response.getContentType());
+        if (decoded == null) {
+            return new String(body, charset);
+        }
+        // The decompressed size is only known once it has been read, so the bytes are collected before decoding
+        try (decoded) {
+            return new String(decoded.readAllBytes(), charset);
+        }
+    }
+
+    /**
+     * @return the charset of the given content type, UTF-8 if it does not declare one
+     */
+    private static Charset charsetOf(String contentType) {
+        return charsetOf(contentType == null ? null : ContentType.parseLenient(contentType));
+    }
+
+    private static Charset charsetOf(ContentType contentType) {
+        Charset charset = contentType == null ? null : contentType.getCharset();
+        return charset != null ? charset : StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Returns the rate limiter shared by all requests to the URL's host. Market listings get a limiter of their
+     * own, as Steam throttles them separately and much more strictly.
+     */
+    static RateLimiter rateLimiterFor(String url) {
+        String endpoint = endpointOf(url);
+        return rateLimiters.computeIfAbsent(endpoint, key -> new RateLimiter(endpoint.endsWith(MARKET_SUFFIX)
+                ? AppConfig.MARKET_REQUEST_DELAY_MS : AppConfig.STEAM_REQUEST_DELAY_MS, AppConfig.RATE_LIMIT_BURST));
+    }
+
+    /**
+     * @return the host of the URL, followed by "/market" for market listings
+     */
+    private static String endpointOf(String url) {
+        String host = hostOf(url);
+        int pathStart = url.indexOf('/', url.indexOf("://") + 3);
+        boolean market = pathStart >= 0 && url.startsWith("/market/", pathStart);
+        return market ? host + MARKET_SUFFIX : host;
+    }
+
+    private static String hostOf(String url) {
+        int hostStart = url.indexOf("://") + 3;
+        int hostEnd = hostStart;
+        while (hostEnd < url.length() && "/?#".indexOf(url.charAt(hostEnd)) < 0) {
+            hostEnd++;
+        }
+        return url.substring(hostStart, hostEnd);
+    }
+
+    /**
+     * Reads a Retry-After header given either in seconds or as an HTTP date.
+     */
+    private static long retryAfterMillis(HttpResponse response) {
+        Header header = response.getFirstHeader("Retry-After");
+        if (header == null) {
+            return 0;
+        }
+        String value = header.getValue().trim();
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime retryAt = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, Duration.between(ZonedDateTime.now(retryAt.getZone()), retryAt).toMillis());
+            } catch (DateTimeParseException ignored) {
+                logger.debug("Ignoring malformed Retry-After header: {}", value);
+                return 0;
+            }
+        }
+    }
+
+    private static String headerValue(HttpResponse response, String name) {
+        Header header = response.getFirstHeader(name);
+        return header == null ? null : header.getValue();
+    }
+
+    @FunctionalInterface
+    private interface HttpOperation<T> {
+        /**
+         * @param fetchEvent the event of this attempt, to be given the status code and body size of the response
+         */
+        T execute(PageFetchEvent fetchEvent) throws IOException;
+    }
+
+    /**
+     * An asynchronous attempt, which is only started once the rate limiter has admitted it.
+     */
+    private static final class AsyncAttempt {
+        long startTime;
+        long startNanos;
+        PageFetchEvent fetchEvent;
+
+        void finish(String endpoint, SimpleHttpResponse response, Throwable failure) {
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause() : failure;
+            if (response != null) {
+                fetchEvent.setStatusCode(response.getCode());
+                fetchEvent.setBytes(response.getBodyBytes() == null ? 0 : response.getBodyBytes().length);
+            } else if (cause instanceof CaseFetcherException e) {
+                fetchEvent.setStatusCode(e.getStatusCode());
+            }
+            fetchEvent.finish();
+            recordAttempt(endpoint, startNanos);
+        }
+    }
+
+    /**
+     * Counts the bytes read from a response body.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        // The first failure to receive the body, whether or not the reader let it through
+        private IOException failure;
+
+        @Override
+        public int read() throws IOException {
+            try {
+                int b = super.read();
+                if (b >= 0) {
+                    count++;
                 }
+                return b;
+            } catch (IOException e) {
+                throw failed(e);
             }
         }
-        throw new IOException("Max retries reached. Unable to complete the request.");
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                int read = super.read(b, off, len);
+                if (read > 0) {
+                    count += read;
+                }
+                return read;
+            } catch (IOException e) {
+                throw failed(e);
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            try {
+                long skipped = super.skip(n);
+                count += skipped;
+                return skipped;
+            } catch (IOException e) {
+                throw failed(e);
+            }
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        IOException getFailure() {
+            return failure;
+        }
+
+        private IOException failed(IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+            return e;
+        }
+    }
+
+    /**
+     * A request that failed without a complete response: it could not be sent, or its response could not be
+     * received. Only thrown within an attempt; the retry loop rethrows the cause if the request is not retried.
+     */
+    private static final class TransportException extends IOException {
+        TransportException(IOException cause) {
+            super(cause.getMessage(), cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
     }
 
+    /**
+     * Consumes the response to a conditional request.
+     */
     @FunctionalInterface
-    private interface HttpOperation {
-        String execute() throws IOException;
+    protected interface ConditionalBodyReader<T> {
+        /**
+         * @param statusCode 200, or 304 if the resource has not been modified
+         * @param etag the ETag of the response, {@code null} if it has none
+         * @param lastModified the Last-Modified date of the response, {@code null} if it has none
+         * @param body the decoded body, {@code null} for a 304
+         */
+        T read(int statusCode, String etag, String lastModified, Reader body) throws IOException;
     }
 }
@@ -0,0 +1,151 @@
+package cla33ic.casefetcher.service.http;
+
+import cla33ic.casefetcher.cache.HttpResponseCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * HTTP client service that serves GETs of cacheable URLs from an {@link HttpResponseCache}.
+ * <p>
+ * A fresh stored response is served without any request, so it costs neither bandwidth nor rate budget.
+ * A stale one is revalidated with a conditional request carrying its ETag and Last-Modified date; a 304 is
+ * served from disk, a 200 replaces the stored response once the caller's body reader has accepted it by
+ * returning normally. A response the reader rejects, such as the page of a logged-out session, is not stored.
+ * All other requests are passed to the delegate.
+ */
+public class CachingHttpClientService implements HttpClientService {
+    private static final Logger logger = LoggerFactory.getLogger(CachingHttpClientService.class);
+    private static final BodyReader<String> READ_ALL = body -> {
+        StringWriter text = new StringWriter();
+        body.transferTo(text);
+        return text.toString();
+    };
+
+    private final AbstractHttpClientService delegate;
+    private final HttpResponseCache cache;
+
+    public CachingHttpClientService(AbstractHttpClientService delegate, HttpResponseCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public String get(String url, Map<String, String> headers) throws IOException {
+        if (!cache.isCacheable(url)) {
+            return delegate.get(url, headers);
+        }
+        return get(url, headers, READ_ALL);
+    }
+
+    @Override
+    public <T> T get(String url, Map<String, String> headers, BodyReader<T> bodyReader) throws IOException {
+        if (!cache.isCacheable(url)) {
+            return delegate.get(url, headers, bodyReader);
+        }
+        Optional<HttpResponseCache.Entry> stored = cache.lookup(url);
+        if (stored.isPresent() && cache.isFresh(stored.get())) {
+            logger.debug("Serving fresh cached response for {}", url);
+            return read(stored.get(), bodyReader);
+        }
+        return delegate.executeConditionalGet(url, withValidators(headers, stored),
+                (statusCode, etag, lastModified, body) ->
+                        readAndStore(url, stored, statusCode, etag, lastModified, body, bodyReader));
+    }
+
+    @Override
+    public CompletableFuture<String> getAsync(String url, Map<String, String> headers) {
+        if (!cache.isCacheable(url)) {
+            return delegate.getAsync(url, headers);
+        }
+        return getAsync(url, headers, READ_ALL);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> getAsync(String url, Map<String, String> headers, BodyReader<T> bodyReader) {
+        if (!cache.isCacheable(url)) {
+            return delegate.getAsync(url, headers, bodyReader);
+        }
+        Optional<HttpResponseCache.Entry> stored = cache.lookup(url);
+        if (stored.isPresent() && cache.isFresh(stored.get())) {
+            logger.debug("Serving fresh cached response for {}", url);
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return read(stored.get(), bodyReader);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        return delegate.executeConditionalGetAsync(url, withValidators(headers, stored),
+                (statusCode, etag, lastModified, body) ->
+                        readAndStore(url, stored, statusCode, etag, lastModified, body, bodyReader));
+    }
+
+    @Override
+    public String post(String url, Map<String, String> headers, String body) throws IOException {
+        return delegate.post(url, headers, body);
+    }
+
+    @Override
+    public void setCookie(String cookie) {
+        delegate.setCookie(cookie);
+    }
+
+    /**
+     * Reads the response of a conditional request: a 304 from the stored response, which it revalidates, and
+     * a 200 from a staged copy, which replaces the stored response only if the body reader accepts it.
+     */
+    private <T> T readAndStore(String url, Optional<HttpResponseCache.Entry> stored, int statusCode, String etag,
+                               String lastModified, Reader body, BodyReader<T> bodyReader) throws IOException {
+        if (statusCode == 304) {
+            if (stored.isEmpty()) {
+                throw new IOException("Received 304 Not Modified without a cached response for " + url);
+            }
+            logger.debug("Cached response for {} is not modified", url);
+            return read(cache.revalidate(stored.get(), etag, lastModified), bodyReader);
+        }
+        HttpResponseCache.Entry staged = cache.stage(url, etag, lastModified, body);
+        boolean committed = false;
+        try {
+            T result = read(staged, bodyReader);
+            cache.commit(staged);
+            committed = true;
+            return result;
+        } finally {
+            if (!committed) {
+                logger.debug("Not caching the rejected response for {}", url);
+                cache.discard(staged);
+            }
+        }
+    }
+
+    private static <T> T read(HttpResponseCache.Entry entry, BodyReader<T> bodyReader) throws IOException {
+        try (Reader body = entry.openBody()) {
+            return bodyReader.read(body);
+        }
+    }
+
+    private static Map<String, String> withValidators(Map<String, String> headers,
+                                                      Optional<HttpResponseCache.Entry> stored) {
+        if (stored.isEmpty()) {
+            return headers;
+        }
+        Map<String, String> conditionalHeaders = new HashMap<>(headers);
+        if (stored.get().etag() != null) {
+            conditionalHeaders.put("If-None-Match", stored.get().etag());
+        }
+        if (stored.get().lastModified() != null) {
+            conditionalHeaders.put("If-Modified-Since", stored.get().lastModified());
+        }
+        return conditionalHeaders;
+    }
+}
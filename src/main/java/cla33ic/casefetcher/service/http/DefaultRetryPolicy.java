@@ -0,0 +1,177 @@
+package cla33ic.casefetcher.service.http;
+
+import cla33ic.casefetcher.config.AppConfig;
+import cla33ic.casefetcher.util.CircuitBreaker;
+import cla33ic.casefetcher.util.RetryBudget;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.net.ssl.SSLException;
+
+/**
+ * Retries throttled (429) and failed (5xx) requests, and requests that failed without a response (see
+ * {@link #isRetryable(IOException)}).
+ * <p>
+ * The delay before a retry is the server's Retry-After, or else decorrelated jitter: a random delay between
+ * the initial delay and three times the previous one, capped. Retries are given up after the maximum number
+ * of attempts, when the next attempt would start after the request's deadline, or when the retry budget shared
+ * by all requests is used up; throttled requests are not charged to the budget. A circuit breaker per host sheds the requests to a host that keeps failing: while
+ * it is open they wait without being sent.
+ */
+public class DefaultRetryPolicy implements RetryPolicy {
+    private static final Logger logger = LoggerFactory.getLogger(DefaultRetryPolicy.class);
+
+    // Shared by all clients, so that the budget and the circuits cover every request of the process
+    private static final DefaultRetryPolicy shared = new DefaultRetryPolicy(AppConfig.HTTP_RETRY_INITIAL_DELAY_MS,
+            AppConfig.HTTP_RETRY_MAX_DELAY_MS, AppConfig.HTTP_MAX_ATTEMPTS, AppConfig.HTTP_REQUEST_DEADLINE_MS,
+            new RetryBudget(AppConfig.HTTP_RETRY_BUDGET_RATIO, AppConfig.HTTP_RETRY_BUDGET_CAP),
+            AppConfig.CIRCUIT_BREAKER_FAILURE_THRESHOLD, AppConfig.CIRCUIT_BREAKER_OPEN_MS);
+
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final int maxAttempts;
+    private final long deadlineMillis;
+    private final RetryBudget retryBudget;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder givenUp = new LongAdder();
+
+    public DefaultRetryPolicy(long initialDelayMillis, long maxDelayMillis, int maxAttempts, long deadlineMillis,
+                              RetryBudget retryBudget, int failureThreshold, long openMillis) {
+        this.initialDelayMillis = Math.max(1, initialDelayMillis);
+        this.maxDelayMillis = Math.max(this.initialDelayMillis, maxDelayMillis);
+        this.maxAttempts = maxAttempts;
+        this.deadlineMillis = deadlineMillis;
+        this.retryBudget = retryBudget;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * @return the policy used by the HTTP clients unless they are given another one
+     */
+    public static DefaultRetryPolicy shared() {
+        return shared;
+    }
+
+    @Override
+    public long admit(String host) {
+        return circuitBreakerFor(host).admit();
+    }
+
+    @Override
+    public void onSuccess(Attempt attempt) {
+        record(attempt);
+        circuitBreakerFor(attempt.host()).onSuccess();
+        logger.info("Request {} completed in {} ms on attempt {}", attempt.requestId(), attempt.durationMillis(),
+                attempt.number());
+    }
+
+    @Override
+    public long onFailure(Attempt attempt, long previousDelayMillis) {
+        record(attempt);
+        logger.error("Request {} failed in {} ms on attempt {} with status {}", attempt.requestId(),
+                attempt.durationMillis(), attempt.number(), attempt.statusCode());
+
+        CircuitBreaker circuitBreaker = circuitBreakerFor(attempt.host());
+        if (!isRetryable(attempt.statusCode())) {
+            // The host did answer, so it counts as healthy
+            circuitBreaker.onSuccess();
+            return GIVE_UP;
+        }
+        CircuitBreaker.State before = circuitBreaker.getState();
+        circuitBreaker.onFailure();
+        if (before != CircuitBreaker.State.OPEN && circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+            logger.warn("Too many failed requests to {}, pausing requests to it for {} ms", attempt.host(), openMillis);
+        }
+
+        if (attempt.number() >= maxAttempts) {
+            return giveUp(attempt, "maximum attempts reached");
+        }
+        long delay = attempt.retryAfterMillis() > 0 ? attempt.retryAfterMillis() : nextJitteredDelay(previousDelayMillis);
+        if (attempt.elapsedMillis() + attempt.durationMillis() + delay > deadlineMillis) {
+            return giveUp(attempt, "deadline of " + deadlineMillis + " ms reached");
+        }
+        // Throttled requests are paced by the host's rate limiter, which slows down on every 429, so their
+        // retries cannot pile up load and are not charged to the budget
+        if (attempt.statusCode() != 429 && !retryBudget.tryWithdraw()) {
+            return giveUp(attempt, "retry budget used up");
+        }
+        retries.increment();
+        logger.warn("Request {} will be retried in {} ms. (Attempt {} of {})", attempt.requestId(), delay,
+                attempt.number(), maxAttempts);
+        return delay;
+    }
+
+    public long getAttempts() {
+        return attempts.sum();
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    public long getGivenUp() {
+        return givenUp.sum();
+    }
+
+    /**
+     * @return how often the circuits of all hosts have been opened
+     */
+    public long getCircuitOpenings() {
+        return circuitBreakers.values().stream().mapToLong(CircuitBreaker::getOpenings).sum();
+    }
+
+    private void record(Attempt attempt) {
+        attempts.increment();
+        if (attempt.number() == 1) {
+            retryBudget.onRequest();
+        }
+    }
+
+    private long giveUp(Attempt attempt, String reason) {
+        givenUp.increment();
+        logger.error("Giving up request {} after {} attempts: {}", attempt.requestId(), attempt.number(), reason);
+        return GIVE_UP;
+    }
+
+    private long nextJitteredDelay(long previousDelayMillis) {
+        long upper = Math.max(initialDelayMillis, previousDelayMillis * 3);
+        return Math.min(maxDelayMillis, ThreadLocalRandom.current().nextLong(initialDelayMillis, upper + 1));
+    }
+
+    private CircuitBreaker circuitBreakerFor(String host) {
+        return circuitBreakers.computeIfAbsent(host, h -> new CircuitBreaker(failureThreshold, openMillis));
+    }
+
+    static boolean isRetryable(int statusCode) {
+        return statusCode == 429 || statusCode >= 500 || statusCode == NO_RESPONSE;
+    }
+
+    /**
+     * Whether a request that failed without a response may be retried, such as after a stale pooled connection,
+     * a connection reset or a read timeout. Interrupted requests, unknown hosts and TLS failures are not, as
+     * another attempt would fail the same way.
+     */
+    static boolean isRetryable(IOException e) {
+        if (Thread.currentThread().isInterrupted()) {
+            return false;
+        }
+        if (e instanceof SocketTimeoutException) {
+            return true;
+        }
+        return !(e instanceof InterruptedIOException || e instanceof UnknownHostException || e instanceof SSLException);
+    }
+}
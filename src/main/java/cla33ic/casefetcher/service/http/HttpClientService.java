@@ -1,10 +1,52 @@
 package cla33ic.casefetcher.service.http;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface HttpClientService {
     String get(String url, Map<String, String> headers) throws IOException;
+
+    /**
+     * Streaming variant of {@link #get}: hands the decoded response body to {@code bodyReader} while it is
+     * received, without materializing it as a string.
+     * @return the result of the body reader
+     */
+    <T> T get(String url, Map<String, String> headers, BodyReader<T> bodyReader) throws IOException;
+
+    /**
+     * Non-blocking variant of {@link #get}, including its rate limiting and retries.
+     * @return a future completed with the response body, or exceptionally with the failure
+     */
+    CompletableFuture<String> getAsync(String url, Map<String, String> headers);
+
+    /**
+     * Non-blocking variant of {@link #get(String, Map, BodyReader)}. The body reader runs on the common pool,
+     * not on the I/O threads of the client.
+     * @return a future completed with the result of the body reader, or exceptionally with the failure
+     */
+    default <T> CompletableFuture<T> getAsync(String url, Map<String, String> headers, BodyReader<T> bodyReader) {
+        return getAsync(url, headers).thenApplyAsync(body -> {
+            try {
+                return bodyReader.read(new StringReader(body));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
     String post(String url, Map<String, String> headers, String body) throws IOException;
     void setCookie(String cookie);
+
+    /**
+     * Consumes a response body. Throwing an {@link IOException} rejects the response, which keeps a caching
+     * client from storing it.
+     */
+    @FunctionalInterface
+    interface BodyReader<T> {
+        T read(Reader body) throws IOException;
+    }
 }
\ No newline at end of file
@@ -2,14 +2,33 @@ package cla33ic.casefetcher.service.http;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class HttpClientServiceImpl extends AbstractHttpClientService {
 
+    public HttpClientServiceImpl() {
+        super();
+    }
+
+    public HttpClientServiceImpl(RetryPolicy retryPolicy) {
+        super(retryPolicy);
+    }
+
     @Override
     public String get(String url, Map<String, String> headers) throws IOException {
         return executeGet(url, headers);
     }
 
+    @Override
+    public <T> T get(String url, Map<String, String> headers, BodyReader<T> bodyReader) throws IOException {
+        return executeGet(url, headers, bodyReader);
+    }
+
+    @Override
+    public CompletableFuture<String> getAsync(String url, Map<String, String> headers) {
+        return executeGetAsync(url, headers);
+    }
+
     @Override
     public String post(String url, Map<String, String> headers, String body) throws IOException {
         return executePost(url, headers, body);
@@ -0,0 +1,38 @@
+package cla33ic.casefetcher.service.http;
+
+/**
+ * Decides when a request may be sent and whether and when a failed attempt is retried.
+ * Every attempt is reported to the policy.
+ */
+public interface RetryPolicy {
+    long GIVE_UP = -1;
+    // Status of an attempt that failed without a response, such as on a reset connection or a read timeout
+    int NO_RESPONSE = 0;
+
+    /**
+     * Called before each attempt. An attempt that is not admitted is not sent; it waits and asks again.
+     * @param host the host, or host and endpoint group, the request is sent to
+     * @return 0 if the attempt may be sent now, otherwise the time in milliseconds until attempts may be admitted again
+     */
+    long admit(String host);
+
+    void onSuccess(Attempt attempt);
+
+    /**
+     * @param previousDelayMillis the delay before the failed attempt, 0 if it was the first one
+     * @return the delay in milliseconds before the next attempt, or {@link #GIVE_UP}
+     */
+    long onFailure(Attempt attempt, long previousDelayMillis);
+
+    /**
+     * One attempt of a request.
+     * @param number the number of the attempt, starting at 1
+     * @param elapsedMillis the time from the start of the first attempt to the start of this one
+     * @param durationMillis the duration of this attempt
+     * @param statusCode the HTTP status of the response, {@link #NO_RESPONSE} if none was received
+     * @param retryAfterMillis the Retry-After of the response, 0 if it has none
+     */
+    record Attempt(String requestId, String host, int number, long elapsedMillis, long durationMillis, int statusCode,
+                   long retryAfterMillis) {
+    }
+}
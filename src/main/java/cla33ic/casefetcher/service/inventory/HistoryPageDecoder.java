@@ -0,0 +1,87 @@
+package cla33ic.casefetcher.service.inventory;
+
+import cla33ic.casefetcher.service.parser.ItemDescriptionIndex;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Optional;
+
+/**
+ * Decodes an inventory history response in a single streaming pass.
+ * <p>
+ * Only the {@code html}, {@code descriptions} and {@code cursor} fields are read; everything else is skipped
+ * without being materialized.
+ */
+public final class HistoryPageDecoder {
+    private static final Logger logger = LoggerFactory.getLogger(HistoryPageDecoder.class);
+
+    private HistoryPageDecoder() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * @param response the response body
+     * @return the decoded page; its html is {@code null} if the response has no {@code html} field
+     * @throws IOException if the response is not valid JSON
+     */
+    public static HistoryPage decode(Reader response) throws IOException {
+        String html = null;
+        ItemDescriptionIndex descriptions = ItemDescriptionIndex.empty();
+        Optional<String[]> cursor = Optional.empty();
+
+        try (JsonReader reader = new JsonReader(response)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "html" -> html = reader.nextString();
+                    case "descriptions" -> descriptions = ItemDescriptionIndex.read(reader);
+                    case "cursor" -> cursor = readCursor(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException e) {
+            // Thrown by JsonReader when a field has an unexpected type
+            throw new IOException(e.getMessage(), e);
+        }
+        return new HistoryPage(html, descriptions, cursor);
+    }
+
+    private static Optional<String[]> readCursor(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return Optional.empty();
+        }
+
+        String time = null;
+        String timeFrac = null;
+        String s = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "time" -> time = reader.nextString();
+                case "time_frac" -> timeFrac = reader.nextString();
+                case "s" -> s = reader.nextString();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (time == null || timeFrac == null || s == null) {
+            logger.debug("Incomplete cursor in response body");
+            return Optional.empty();
+        }
+        logger.debug("Extracted cursor: time={}, time_frac={}, s={}", time, timeFrac, s);
+        return Optional.of(new String[]{time, timeFrac, s});
+    }
+
+    /**
+     * The parts of a history response used by the crawl.
+     */
+    public record HistoryPage(String html, ItemDescriptionIndex descriptions, Optional<String[]> cursor) {
+    }
+}
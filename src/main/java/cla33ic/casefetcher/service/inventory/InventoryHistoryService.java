@@ -1,5 +1,6 @@
 package cla33ic.casefetcher.service.inventory;
 
+import cla33ic.casefetcher.model.CaseOpeningColumns;
 import cla33ic.casefetcher.model.CaseOpeningEvent;
 import cla33ic.casefetcher.model.CaseOpeningSummary;
 
@@ -8,4 +9,5 @@ import java.util.List;
 public interface InventoryHistoryService {
     List<CaseOpeningEvent> fetchInventoryHistory(String steamId);
     CaseOpeningSummary summarizeCaseOpenings(List<CaseOpeningEvent> events);
+    CaseOpeningSummary summarizeCaseOpenings(CaseOpeningColumns columns, double keyPrice);
 }
\ No newline at end of file
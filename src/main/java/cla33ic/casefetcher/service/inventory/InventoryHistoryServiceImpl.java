@@ -1,44 +1,57 @@
 package cla33ic.casefetcher.service.inventory;
 
+import cla33ic.casefetcher.exception.CaseFetcherException;
+import cla33ic.casefetcher.metrics.LatencyHistogram;
+import cla33ic.casefetcher.metrics.MetricsRegistry;
+import cla33ic.casefetcher.model.CaseOpeningColumns;
 import cla33ic.casefetcher.model.CaseOpeningEvent;
 import cla33ic.casefetcher.model.CaseOpeningSummary;
 import cla33ic.casefetcher.service.http.HttpClientService;
+import cla33ic.casefetcher.service.inventory.HistoryPageDecoder.HistoryPage;
+import cla33ic.casefetcher.service.market.CasePriceResolver;
 import cla33ic.casefetcher.service.parser.CaseOpeningParser;
 import cla33ic.casefetcher.util.PaginationHelper;
 import cla33ic.casefetcher.util.UrlBuilder;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonSyntaxException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import cla33ic.casefetcher.config.AppConfig;
 
 public class InventoryHistoryServiceImpl implements InventoryHistoryService {
     private static final Logger logger = LoggerFactory.getLogger(InventoryHistoryServiceImpl.class);
-    private static final long DELAY_BETWEEN_REQUESTS = AppConfig.STEAM_REQUEST_DELAY_MS; // Configurable delay
+    private static final LatencyHistogram pageParseTime =
+            MetricsRegistry.global().histogram("casefetcher_history_page_parse_seconds");
 
     private final HttpClientService httpClientService;
     private final CaseOpeningParser caseOpeningParser;
+    private final CasePriceResolver casePriceResolver;
     private final String cookie;
-    private final Gson gson;
 
-    public InventoryHistoryServiceImpl(HttpClientService httpClientService, CaseOpeningParser caseOpeningParser, String cookie) {
+    public InventoryHistoryServiceImpl(HttpClientService httpClientService, CaseOpeningParser caseOpeningParser,
+                                       CasePriceResolver casePriceResolver, String cookie) {
         this.httpClientService = httpClientService;
         this.caseOpeningParser = caseOpeningParser;
+        this.casePriceResolver = casePriceResolver;
         this.cookie = cookie;
-        // Removed deprecated setLenient() call.
-        this.gson = new GsonBuilder().create();
     }
 
     @Override
@@ -49,104 +62,230 @@ public class InventoryHistoryServiceImpl implements InventoryHistoryService {
     /**
      * Overloaded method to fetch inventory history only for events newer than latestCachedDate.
      * If latestCachedDate is null, fetch all events.
+     * <p>
+     * Pages are crawled by a dedicated fetcher thread that decodes each response in one streaming pass,
+     * follows its cursor and hands the page to a bounded queue. Parser workers drain the queue in parallel, and the parsed pages
+     * are reassembled in page order once the crawl has finished, and priced in a single resolution pass.
+     * @throws CaseFetcherException if a page could not be fetched or parsed, or the crawl was interrupted, so that no
+     * partial history is returned
      */
     public List<CaseOpeningEvent> fetchInventoryHistory(String baseUrl, LocalDateTime latestCachedDate) {
+        BlockingQueue<QueuedPage> pageQueue = new ArrayBlockingQueue<>(AppConfig.HISTORY_PAGE_QUEUE_CAPACITY);
+        Map<Integer, List<CaseOpeningEvent>> parsedPages = new ConcurrentHashMap<>();
+        // Last page that may still contain new events; lowered by the parsers once the cached history is reached
+        AtomicInteger lastPage = new AtomicInteger(Integer.MAX_VALUE);
+        // First failure of any stage; once set, the crawl stops and no events are returned
+        AtomicReference<Exception> crawlFailure = new AtomicReference<>();
+        int parserThreads = AppConfig.HISTORY_PARSER_THREADS;
+
+        ExecutorService parsers = Executors.newFixedThreadPool(parserThreads, daemonThreads("history-parser-"));
+        for (int i = 0; i < parserThreads; i++) {
+            parsers.execute(() -> parsePages(pageQueue, parsedPages, lastPage, latestCachedDate, crawlFailure));
+        }
+        Thread fetcher = new Thread(() -> fetchPages(baseUrl, pageQueue, lastPage, parserThreads, crawlFailure),
+                "history-fetcher");
+        fetcher.setDaemon(true);
+        fetcher.start();
+
+        try {
+            fetcher.join();
+            parsers.shutdown();
+            if (!parsers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS)) {
+                logger.warn("History parsers did not terminate");
+            }
+        } catch (InterruptedException e) {
+            logger.error("Thread was interrupted while waiting for the history pipeline", e);
+            crawlFailure.compareAndSet(null, e);
+            fetcher.interrupt();
+            parsers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        Exception failure = crawlFailure.get();
+        if (failure != null) {
+            int statusCode = failure instanceof CaseFetcherException caseFetcherException
+                    ? caseFetcherException.getStatusCode() : 0;
+            String reason = failure instanceof InterruptedException ? "interrupted" : failure.getMessage();
+            throw new CaseFetcherException("Inventory history crawl aborted: " + reason, statusCode, failure);
+        }
+
         List<CaseOpeningEvent> allEvents = new ArrayList<>();
+        int stopPage = lastPage.get();
+        for (int page = 1; page <= stopPage && parsedPages.containsKey(page); page++) {
+            allEvents.addAll(parsedPages.get(page));
+        }
+        allEvents = casePriceResolver.resolvePrices(allEvents);
+
+        logger.info("Fetched a total of {} new case opening events", allEvents.size());
+        return allEvents;
+    }
+
+    /**
+     * Fetcher stage: follows the pagination cursors and queues the responses, decoded while they are received, keeping at most one
+     * request at a time. The request rate is paced by the HTTP layer's rate limiter for the host. Always ends
+     * the stream with one end marker per parser, also when a request fails or the thread is interrupted; the failure
+     * is then left in {@code crawlFailure}. Stops early once another stage has failed.
+     */
+    private void fetchPages(String baseUrl, BlockingQueue<QueuedPage> pageQueue, AtomicInteger lastPage, int parserThreads,
+                            AtomicReference<Exception> crawlFailure) {
         Optional<String[]> cursor = Optional.empty();
         int page = 1;
 
-        outerLoop:
-        do {
-            try {
+        try {
+            do {
                 String url = UrlBuilder.buildUrl(baseUrl, cookie, cursor.map(c -> c[0]).orElse(null),
                         cursor.map(c -> c[1]).orElse(null), cursor.map(c -> c[2]).orElse(null));
 
                 Map<String, String> headers = new HashMap<>();
                 UrlBuilder.setHeaders(headers, cookie, baseUrl);
 
-                String response = httpClientService.get(url, headers);
-                JsonObject jsonResponse = parseJsonResponse(response);
-
-                if (jsonResponse == null || !jsonResponse.has("html")) {
-                    logger.warn("Received invalid JSON response or missing 'html' field. Stopping pagination.");
+                int pageNumber = page;
+                HistoryPage historyPage = httpClientService.get(url, headers, body -> decodePage(pageNumber, body));
+                if (historyPage == null) {
+                    lastPage.accumulateAndGet(page, Math::min);
                     break;
                 }
+                pageQueue.put(new QueuedPage(page, historyPage));
 
-                List<CaseOpeningEvent> caseOpenings = caseOpeningParser.extractCaseOpenings(jsonResponse.get("html").getAsString(), jsonResponse);
-                // If latestCachedDate is provided, filter out older events and stop if reached.
-                if (latestCachedDate != null) {
-                    List<CaseOpeningEvent> newEvents = new ArrayList<>();
-                    for (CaseOpeningEvent event : caseOpenings) {
-                        if (event.dateTime().isAfter(latestCachedDate)) {
-                            newEvents.add(event);
-                        } else {
-                            // As events are in descending order, once we hit an older event, we can stop processing further.
-                            break outerLoop;
-                        }
-                    }
-                    caseOpenings = newEvents;
-                }
-
-                allEvents.addAll(caseOpenings);
-                PaginationHelper.logPageInfo(page, caseOpenings.size());
-
-                cursor = UrlBuilder.extractCursor(response);
+                cursor = historyPage.cursor();
                 page++;
+            } while (PaginationHelper.hasNextPage(cursor) && page <= lastPage.get() && crawlFailure.get() == null);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Error occurred during inventory history retrieval on page {}", page, e);
+            crawlFailure.compareAndSet(null, e);
+        } catch (InterruptedException e) {
+            logger.error("Thread was interrupted while queueing a page", e);
+            crawlFailure.compareAndSet(null, e);
+            Thread.currentThread().interrupt();
+        } finally {
+            endQueue(pageQueue, parserThreads);
+        }
+    }
 
-                // Replace Thread.sleep() with TimeUnit.MILLISECONDS.sleep() for clarity
-                TimeUnit.MILLISECONDS.sleep(DELAY_BETWEEN_REQUESTS);
-            } catch (IOException e) {
-                logger.error("Error occurred during inventory history retrieval", e);
-                break;
-            } catch (InterruptedException e) {
-                logger.error("Thread was interrupted during delay between requests", e);
+    private static void endQueue(BlockingQueue<QueuedPage> pageQueue, int parserThreads) {
+        // Cleared for the puts, the parsers are still draining the queue and have to receive their end markers
+        boolean interrupted = Thread.interrupted();
+        try {
+            for (int i = 0; i < parserThreads; i++) {
+                pageQueue.put(QueuedPage.END);
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } finally {
+            if (interrupted) {
                 Thread.currentThread().interrupt();
-                break;
             }
-        } while (PaginationHelper.hasNextPage(cursor));
+        }
+    }
 
-        logger.info("Fetched a total of {} new case opening events", allEvents.size());
-        return allEvents;
+    private static ThreadFactory daemonThreads(String namePrefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Parser stage: drains decoded pages from the queue until the end marker is received. A page that fails to parse
+     * is left in {@code crawlFailure}, and the remaining pages are only drained.
+     */
+    private void parsePages(BlockingQueue<QueuedPage> pageQueue, Map<Integer, List<CaseOpeningEvent>> parsedPages,
+                            AtomicInteger lastPage, LocalDateTime latestCachedDate,
+                            AtomicReference<Exception> crawlFailure) {
+        try {
+            while (true) {
+                QueuedPage queuedPage = pageQueue.take();
+                if (queuedPage == QueuedPage.END) {
+                    return;
+                }
+                if (queuedPage.number() > lastPage.get() || crawlFailure.get() != null) {
+                    // Fetched ahead of the point where the cached history was reached, or after a failure
+                    continue;
+                }
+                try {
+                    parsedPages.put(queuedPage.number(), parsePage(queuedPage, lastPage, latestCachedDate));
+                } catch (RuntimeException e) {
+                    logger.error("Failed to parse page {}. Aborting the crawl.", queuedPage.number(), e);
+                    crawlFailure.compareAndSet(null, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            crawlFailure.compareAndSet(null, e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<CaseOpeningEvent> parsePage(QueuedPage queuedPage, AtomicInteger lastPage, LocalDateTime latestCachedDate) {
+        long startNanos = System.nanoTime();
+        try {
+            List<CaseOpeningEvent> caseOpenings = caseOpeningParser.extractCaseOpenings(queuedPage.page().html(),
+                    queuedPage.page().descriptions());
+            // If latestCachedDate is provided, filter out older events and stop if reached.
+            if (latestCachedDate != null) {
+                List<CaseOpeningEvent> newEvents = new ArrayList<>();
+                for (CaseOpeningEvent event : caseOpenings) {
+                    if (event.dateTime().isAfter(latestCachedDate)) {
+                        newEvents.add(event);
+                    } else {
+                        // As events are in descending order, no later page can contain new events.
+                        lastPage.accumulateAndGet(queuedPage.number(), Math::min);
+                        break;
+                    }
+                }
+                caseOpenings = newEvents;
+            }
+
+            PaginationHelper.logPageInfo(queuedPage.number(), caseOpenings.size());
+            return caseOpenings;
+        } finally {
+            pageParseTime.recordSince(startNanos);
+        }
     }
 
     @Override
     public CaseOpeningSummary summarizeCaseOpenings(List<CaseOpeningEvent> events) {
         logger.info("Starting to summarize {} case opening events", events.size());
 
-        Map<String, Integer> caseStats = new HashMap<>();
-        Map<String, Integer> itemStats = new HashMap<>();
-        Map<String, Long> rarityStats = new HashMap<>();
-        double totalKeyCost = 0;
-        double totalCaseCost = 0;
-
-        for (CaseOpeningEvent event : events) {
-            if (event == null) {
-                logger.warn("Encountered a null event during summarization");
-                continue;
-            }
-
-            caseStats.merge(event.caseOpened(), 1, Integer::sum);
-            itemStats.merge(event.itemReceived(), 1, Integer::sum);
-            rarityStats.merge(event.rarity(), 1L, Long::sum);
-            totalKeyCost += AppConfig.KEY_PRICE;
-            totalCaseCost += event.casePrice();
+        List<CaseOpeningEvent> nonNullEvents = events;
+        if (events.contains(null)) {
+            logger.warn("Encountered a null event during summarization");
+            nonNullEvents = events.stream().filter(Objects::nonNull).toList();
         }
+        return summarizeCaseOpenings(CaseOpeningColumns.of(nonNullEvents), AppConfig.KEY_PRICE);
+    }
 
-        int totalCases = events.size();
+    @Override
+    public CaseOpeningSummary summarizeCaseOpenings(CaseOpeningColumns columns, double keyPrice) {
+        CaseOpeningSummary summary = columns.summarize(keyPrice);
 
         logger.info("Summarization complete. Total cases: {}, Total key cost: {}, Total case cost: {}",
-                totalCases, totalKeyCost, totalCaseCost);
+                summary.totalCases(), summary.totalKeyCost(), summary.totalCaseCost());
 
-        return new CaseOpeningSummary(caseStats, itemStats, rarityStats, totalCases, totalKeyCost, totalCaseCost, events);
+        return summary;
     }
 
-    private JsonObject parseJsonResponse(String response) {
+    /**
+     * Decodes a history response, or returns {@code null} if it is not valid JSON or lacks the html field.
+     */
+    private HistoryPage decodePage(int page, Reader response) {
         try {
-            return gson.fromJson(response, JsonObject.class);
-        } catch (JsonSyntaxException e) {
+            HistoryPage historyPage = HistoryPageDecoder.decode(response);
+            if (historyPage.html() != null) {
+                return historyPage;
+            }
+        } catch (IOException e) {
             logger.error("Failed to parse JSON response: {}", e.getMessage());
-            logger.debug("Response content: {}", response);
-            return null;
         }
+        logger.warn("Received invalid JSON response or missing 'html' field on page {}. Stopping pagination.", page);
+        return null;
+    }
+
+    /**
+     * A decoded history page as handed from the fetcher to the parsers.
+     */
+    private record QueuedPage(int number, HistoryPage page) {
+        private static final QueuedPage END = new QueuedPage(-1, null);
     }
 }
@@ -0,0 +1,126 @@
+package cla33ic.casefetcher.service.market;
+
+import cla33ic.casefetcher.model.CaseOpeningColumns;
+import cla33ic.casefetcher.model.CaseOpeningEvent;
+import cla33ic.casefetcher.model.SymbolTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolution stage for case prices. Parsing emits events with a pending price; this stage collects
+ * the distinct containers of a whole crawl, refreshes each price history at most once and then prices the events
+ * of each container with one batched lookup of their sorted dates.
+ */
+public class CasePriceResolver {
+    private static final Logger logger = LoggerFactory.getLogger(CasePriceResolver.class);
+
+    private final SteamMarketService steamMarketService;
+
+    public CasePriceResolver(SteamMarketService steamMarketService) {
+        this.steamMarketService = steamMarketService;
+    }
+
+    /**
+     * Resolves the case price of every event with a pending price.
+     * @param events the events to price, in any order
+     * @return the events in the same order, with all prices resolved
+     */
+    public List<CaseOpeningEvent> resolvePrices(List<CaseOpeningEvent> events) {
+        Map<String, PendingEvents> pendingByContainer = new LinkedHashMap<>();
+        for (int i = 0; i < events.size(); i++) {
+            CaseOpeningEvent event = events.get(i);
+            if (event.hasPendingPrice()) {
+                pendingByContainer.computeIfAbsent(event.caseOpened(), container -> new PendingEvents())
+                        .add(event.dateTime().toLocalDate().toEpochDay(), i);
+            }
+        }
+        if (pendingByContainer.isEmpty()) {
+            return events;
+        }
+
+        Map<String, LocalDate> latestDateByContainer = new LinkedHashMap<>();
+        pendingByContainer.forEach((container, pending) -> {
+            pending.sort();
+            latestDateByContainer.put(container, LocalDate.ofEpochDay(pending.epochDayAt(pending.size() - 1)));
+        });
+        logger.info("Resolving prices for {} distinct containers", latestDateByContainer.size());
+        steamMarketService.prefetchPriceHistories(latestDateByContainer);
+
+        List<CaseOpeningEvent> resolved = new ArrayList<>(events);
+        pendingByContainer.forEach((container, pending) -> {
+            double[] prices = steamMarketService.fetchPricesForDates(container, pending.sortedEpochDays());
+            for (int i = 0; i < prices.length; i++) {
+                int eventIndex = pending.eventIndexAt(i);
+                resolved.set(eventIndex, resolved.get(eventIndex).withCasePrice(prices[i]));
+            }
+        });
+        return resolved;
+    }
+
+    /**
+     * Re-prices all events of the columns with the current price histories, whatever price they were resolved
+     * with before. Each price history is refreshed at most once, up to the latest day of its container.
+     * @param columns the events to re-price in place
+     */
+    public void reprice(CaseOpeningColumns columns) {
+        Map<String, LocalDate> latestDateByContainer = new LinkedHashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            CaseOpeningEvent event = columns.get(i);
+            if (event.caseOpened() != null) {
+                latestDateByContainer.merge(event.caseOpened(), event.dateTime().toLocalDate(),
+                        (latest, date) -> date.isAfter(latest) ? date : latest);
+            }
+        }
+        logger.info("Re-pricing {} events of {} distinct containers", columns.size(), latestDateByContainer.size());
+        steamMarketService.prefetchPriceHistories(latestDateByContainer);
+        columns.reprice((caseId, epochDay) ->
+                steamMarketService.fetchPriceForDate(SymbolTable.name(caseId), LocalDate.ofEpochDay(epochDay)));
+    }
+
+    /**
+     * The events of one container awaiting a price, as epoch day and event index packed into one long, so that
+     * sorting them orders them by day.
+     */
+    private static final class PendingEvents {
+        private long[] keys = new long[16];
+        private int size;
+
+        void add(long epochDay, int eventIndex) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            keys[size++] = (epochDay << 32) | eventIndex;
+        }
+
+        void sort() {
+            Arrays.sort(keys, 0, size);
+        }
+
+        int size() {
+            return size;
+        }
+
+        int epochDayAt(int index) {
+            return (int) (keys[index] >> 32);
+        }
+
+        int eventIndexAt(int index) {
+            return (int) keys[index];
+        }
+
+        int[] sortedEpochDays() {
+            int[] epochDays = new int[size];
+            for (int i = 0; i < size; i++) {
+                epochDays[i] = epochDayAt(i);
+            }
+            return epochDays;
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package cla33ic.casefetcher.service.market;
+
+import cla33ic.casefetcher.config.LoggingConfig;
+import cla33ic.casefetcher.model.PriceSeries;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+
+/**
+ * Extracts the daily price history ({@code line1}) embedded in the script of a Steam market listing page.
+ * <p>
+ * The page is scanned once for {@code var line1=[} without being parsed as HTML, and the entries that follow, such
+ * as {@code ["Nov 14 2013 01: +0",0.425,"4"]}, are decoded straight into a {@link PriceSeries}. Dates and prices are
+ * parsed from a reused buffer, so that an entry allocates nothing.
+ */
+public final class PriceHistoryParser {
+    private static final Logger logger = LoggerFactory.getLogger(PriceHistoryParser.class);
+    private static final char[] LINE1_MARKER = "var line1=[".toCharArray();
+    private static final String[] MONTHS =
+            {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+    private static final int[] DAYS_IN_MONTH = {31, 29, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+    // Powers of ten that are exact doubles, for prices that can be converted with a single division
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    private static final int NO_DAY = Integer.MIN_VALUE;
+    // Prices of a long-lived case, to size the series once for most listings
+    private static final int EXPECTED_DAYS = 4096;
+
+    private PriceHistoryParser() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * @param listingPage the HTML of the market listing page
+     * @return the prices by day, empty if the page contains no price history
+     * @throws UncheckedIOException if the price history is malformed
+     */
+    public static PriceSeries parse(String listingPage) {
+        try {
+            return parse(new StringReader(listingPage));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Streaming variant of {@link #parse(String)} that stops reading once the price history has been decoded.
+     * @param listingPage the HTML of the market listing page
+     * @return the prices by day, empty if the page contains no price history
+     * @throws IOException if the page cannot be read or the price history is malformed
+     */
+    public static PriceSeries parse(Reader listingPage) throws IOException {
+        return parse(listingPage, false);
+    }
+
+    /**
+     * Variant of {@link #parse(Reader)} for listing pages that must carry a price history; Steam leaves it out
+     * of the pages it serves to sessions that are not logged in.
+     * @param listingPage the HTML of the market listing page
+     * @return the prices by day
+     * @throws IOException if the page cannot be read, contains no price history or the price history is malformed
+     */
+    public static PriceSeries parseRequired(Reader listingPage) throws IOException {
+        return parse(listingPage, true);
+    }
+
+    private static PriceSeries parse(Reader listingPage, boolean required) throws IOException {
+        PageScanner scanner = new PageScanner(listingPage);
+        if (!scanner.skipPast(LINE1_MARKER)) {
+            if (required) {
+                throw new IOException("No price history on the listing page, the session may not be logged in");
+            }
+            return PriceSeries.empty();
+        }
+
+        PriceSeries.Builder prices = PriceSeries.builder(EXPECTED_DAYS);
+        int c = scanner.nextNonWhitespace();
+        if (c == ']') {
+            return prices.build();
+        }
+        while (true) {
+            if (c != '[') {
+                throw scanner.malformed("expected an entry");
+            }
+            decodeEntry(scanner, prices);
+            c = scanner.nextNonWhitespace();
+            if (c == ']') {
+                return prices.build();
+            }
+            if (c != ',') {
+                throw scanner.malformed("expected ',' or ']' after an entry");
+            }
+            c = scanner.nextNonWhitespace();
+        }
+    }
+
+    /**
+     * Decodes the entry whose opening bracket has just been read, up to and including its closing bracket.
+     * Entries with an unparsable date or price are skipped.
+     */
+    private static void decodeEntry(PageScanner scanner, PriceSeries.Builder prices) throws IOException {
+        int epochDay = NO_DAY;
+        double price = Double.NaN;
+        int element = 0;
+        int c = scanner.nextNonWhitespace();
+        while (c != ']') {
+            int length = scanner.readValue(c);
+            if (element == 0) {
+                epochDay = parseEpochDay(scanner.value, length);
+            } else if (element == 1) {
+                price = parsePrice(scanner.value, length);
+            }
+            element++;
+            c = scanner.nextNonWhitespace();
+            if (c == ',') {
+                c = scanner.nextNonWhitespace();
+            } else if (c != ']') {
+                throw scanner.malformed("expected ',' or ']' in an entry");
+            }
+        }
+
+        if (epochDay != NO_DAY && !Double.isNaN(price)) {
+            prices.add(epochDay, price);
+        } else {
+            logger.warn(LoggingConfig.SAMPLED, "Skipping entry due to parsing error: {}",
+                    epochDay == NO_DAY ? "invalid date" : "invalid price");
+        }
+    }
+
+    /**
+     * Parses the date of an entry such as {@code Nov 14 2013 01: +0}; everything after the year is ignored.
+     * @return the epoch day, or {@link #NO_DAY} if the text does not start with a valid date
+     */
+    private static int parseEpochDay(char[] text, int length) {
+        if (length < 10 || length > text.length || text[3] != ' ') {
+            return NO_DAY;
+        }
+        int month = 0;
+        while (month < MONTHS.length && !startsWith(text, MONTHS[month])) {
+            month++;
+        }
+        if (month == MONTHS.length) {
+            return NO_DAY;
+        }
+        month++;
+
+        int position = 4;
+        int day = 0;
+        while (position < length && position < 6 && isDigit(text[position])) {
+            day = day * 10 + (text[position++] - '0');
+        }
+        if (position == 4 || position + 5 > length || text[position++] != ' ') {
+            return NO_DAY;
+        }
+        int year = 0;
+        for (int end = position + 4; position < end; position++) {
+            if (!isDigit(text[position])) {
+                return NO_DAY;
+            }
+            year = year * 10 + (text[position] - '0');
+        }
+        if (position < length && text[position] != ' ') {
+            return NO_DAY;
+        }
+        if (day < 1 || day > DAYS_IN_MONTH[month - 1] || (month == 2 && day == 29 && !isLeapYear(year))) {
+            return NO_DAY;
+        }
+        return epochDay(year, month, day);
+    }
+
+    /**
+     * @return the price, or {@code NaN} if the text is not a finite number
+     */
+    private static double parsePrice(char[] text, int length) {
+        if (length == 0 || length > text.length) {
+            return Double.NaN;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean fraction = false;
+        boolean anyDigit = false;
+        for (int i = 0; i < length; i++) {
+            char c = text[i];
+            if (isDigit(c)) {
+                anyDigit = true;
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa != 0) {
+                    digits++;
+                }
+                if (fraction) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else {
+                return parsePriceSlowly(text, length);
+            }
+            // Longer mantissas may not be exact doubles
+            if (digits > 15 || fractionDigits >= POWERS_OF_TEN.length) {
+                return parsePriceSlowly(text, length);
+            }
+        }
+        if (!anyDigit) {
+            return Double.NaN;
+        }
+        // Both operands are exact doubles, so the division is correctly rounded, as Double.parseDouble would be
+        return mantissa / POWERS_OF_TEN[fractionDigits];
+    }
+
+    /**
+     * Parses prices the fast path does not cover, such as ones in exponent notation.
+     */
+    private static double parsePriceSlowly(char[] text, int length) {
+        try {
+            double price = Double.parseDouble(new String(text, 0, length));
+            return Double.isFinite(price) ? price : Double.NaN;
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static boolean startsWith(char[] text, String prefix) {
+        for (int i = 0; i < prefix.length(); i++) {
+            if (text[i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+    }
+
+    /**
+     * Days since 1970-01-01 of a valid date of a non-negative year, as {@code LocalDate.toEpochDay} computes them.
+     */
+    private static int epochDay(int year, int month, int day) {
+        // Counted in years starting in March, so that the leap day is the last day of its year
+        int marchYear = month <= 2 ? year - 1 : year;
+        // Floored, as January and February of year 0 belong to March year -1
+        int era = Math.floorDiv(marchYear, 400);
+        int yearOfEra = marchYear - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+
+    /**
+     * Reads a page through its own unsynchronized buffer, and the values of an entry into a reused one.
+     */
+    private static final class PageScanner {
+        private final Reader reader;
+        private final char[] buffer = new char[8192];
+        private int position;
+        private int limit;
+        // The characters of the last value read, up to the buffer's length; longer values never parse
+        private final char[] value = new char[64];
+
+        PageScanner(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * @return the next character, or -1 at the end of the page
+         */
+        int next() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position++];
+        }
+
+        int nextNonWhitespace() throws IOException {
+            while (position < limit || fill()) {
+                char c = buffer[position++];
+                if (!isWhitespace(c)) {
+                    return c;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Reads up to and including the first occurrence of the marker, whose first character must not occur
+         * again in it.
+         * @return whether the marker was found
+         */
+        boolean skipPast(char[] marker) throws IOException {
+            int matched = 0;
+            while (position < limit || fill()) {
+                char c = buffer[position++];
+                if (c == marker[matched]) {
+                    if (++matched == marker.length) {
+                        return true;
+                    }
+                } else {
+                    matched = c == marker[0] ? 1 : 0;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Reads a string without its quotes, or an unquoted value such as a number, into {@link #value}.
+         * @param first the first character of the value, already read
+         * @return the length of the value
+         */
+        int readValue(int first) throws IOException {
+            if (first == '"') {
+                return readString();
+            }
+            if (first == -1 || first == '[' || first == '{' || first == ',' || first == ']') {
+                throw malformed("expected a value");
+            }
+            value[0] = (char) first;
+            int length = 1;
+            while (position < limit || fill()) {
+                // Scans the buffered characters without writing the position back for each of them
+                int end = position;
+                while (end < limit && !isDelimiter(buffer[end])) {
+                    end++;
+                }
+                length = copyValue(length, end);
+                if (end < limit) {
+                    break;
+                }
+            }
+            return length;
+        }
+
+        private int readString() throws IOException {
+            int length = 0;
+            while (position < limit || fill()) {
+                int end = position;
+                while (end < limit && buffer[end] != '"' && buffer[end] != '\\') {
+                    end++;
+                }
+                length = copyValue(length, end);
+                if (end == limit) {
+                    continue;
+                }
+                if (buffer[position++] == '"') {
+                    return length;
+                }
+                int escaped = next();
+                if (escaped == -1) {
+                    break;
+                }
+                if (length < value.length) {
+                    value[length] = (char) escaped;
+                }
+                length++;
+            }
+            throw malformed("unterminated string");
+        }
+
+        /**
+         * Appends the buffered characters up to the end to {@link #value} and consumes them.
+         * @return the new length of the value
+         */
+        private int copyValue(int length, int end) {
+            int count = end - position;
+            if (length < value.length) {
+                System.arraycopy(buffer, position, value, length, Math.min(count, value.length - length));
+            }
+            position = end;
+            return length + count;
+        }
+
+        IOException malformed(String reason) {
+            return new IOException("Malformed price history: " + reason);
+        }
+
+        /**
+         * @return whether more characters were read into the buffer
+         */
+        private boolean fill() throws IOException {
+            int read = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            limit = Math.max(read, 0);
+            return read > 0;
+        }
+
+        private static boolean isDelimiter(char c) {
+            return c == ',' || c == ']' || isWhitespace(c);
+        }
+
+        private static boolean isWhitespace(char c) {
+            return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+        }
+    }
+}
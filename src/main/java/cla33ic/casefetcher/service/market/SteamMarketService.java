@@ -1,7 +1,17 @@
 package cla33ic.casefetcher.service.market;
 
 import java.time.LocalDate;
+import java.util.Map;
 
 public interface SteamMarketService {
     double fetchPriceForDate(String itemName, LocalDate date);
-}
\ No newline at end of file
+
+    /**
+     * Batched variant of {@link #fetchPriceForDate}: looks up the prices of an item on many days at once.
+     * @param sortedEpochDays the days, as epoch days in ascending order
+     * @return the price on each day, at the same index
+     */
+    double[] fetchPricesForDates(String itemName, int[] sortedEpochDays);
+
+    void prefetchPriceHistories(Map<String, LocalDate> latestDateByItem);
+}
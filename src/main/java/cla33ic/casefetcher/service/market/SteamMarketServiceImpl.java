@@ -1,135 +1,249 @@
 package cla33ic.casefetcher.service.market;
 
 import cla33ic.casefetcher.cache.CacheService;
+import cla33ic.casefetcher.cache.MappedPriceHistory;
+import cla33ic.casefetcher.cache.PriceHistoryStore;
 import cla33ic.casefetcher.config.AppConfig;
+import cla33ic.casefetcher.config.LoggingConfig;
+import cla33ic.casefetcher.metrics.LatencyHistogram;
+import cla33ic.casefetcher.metrics.MetricsRegistry;
+import cla33ic.casefetcher.metrics.jfr.PriceFetchEvent;
+import cla33ic.casefetcher.metrics.jfr.PriceLookupEvent;
+import cla33ic.casefetcher.model.PriceSeries;
 import cla33ic.casefetcher.service.http.HttpClientService;
-import cla33ic.casefetcher.util.RateLimiter;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class SteamMarketServiceImpl implements SteamMarketService, HttpClientService {
     private static final Logger logger = LoggerFactory.getLogger(SteamMarketServiceImpl.class);
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("MMM dd yyyy", Locale.US);
     private static final double DEFAULT_PRICE = 0.01;
+    // Includes the time spent fetching a listing the price history store does not cover yet
+    private static final LatencyHistogram priceLookupTime =
+            MetricsRegistry.global().histogram("casefetcher_price_lookup_seconds");
 
-    private final CacheService<String, TreeMap<LocalDate, Double>> cacheService;
+    // Price histories fetched during this run, so that each listing is requested at most once
+    private final CacheService<String, PriceSeries> cacheService;
+    private final PriceHistoryStore priceHistoryStore;
+    // Refreshes in flight, so that concurrent callers of a shared service wait for one request per listing
+    private final Map<String, CompletableFuture<Void>> pendingLoads = new ConcurrentHashMap<>();
     private final HttpClientService httpClientService;
     private String cookie;
 
-    // Rate limiter to enforce a delay between requests (~1 every 2400ms for 25 req/min)
-    private final RateLimiter rateLimiter = new RateLimiter(2400);
-    // Executor for asynchronous operations (if needed in the future)
-    private final ExecutorService executor = Executors.newFixedThreadPool(5);
+    // Executor for storing prefetched price histories; the requests themselves are asynchronous
+    private final ExecutorService executor = Executors.newFixedThreadPool(5, runnable -> {
+        Thread thread = new Thread(runnable, "market-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     public SteamMarketServiceImpl(HttpClientService httpClientService,
-                                  CacheService<String, TreeMap<LocalDate, Double>> cacheService,
+                                  CacheService<String, PriceSeries> cacheService,
+                                  PriceHistoryStore priceHistoryStore,
                                   String cookie) {
         this.httpClientService = httpClientService;
         this.cacheService = cacheService;
+        this.priceHistoryStore = priceHistoryStore;
         this.cookie = cookie;
     }
 
     @Override
     public double fetchPriceForDate(String itemName, LocalDate date) {
+        long startNanos = System.nanoTime();
+        PriceLookupEvent lookupEvent = PriceLookupEvent.start(itemName);
+        double price = DEFAULT_PRICE;
         try {
-            TreeMap<LocalDate, Double> priceData = cacheService.get(itemName)
-                    .orElseGet(() -> {
-                        try {
-                            TreeMap<LocalDate, Double> fetchedData = fetchPriceData(itemName);
-                            cacheService.put(itemName, fetchedData);
-                            return fetchedData;
-                        } catch (IOException e) {
-                            logger.error("Failed to fetch price data for {}: {}", itemName, e.getMessage());
-                            return new TreeMap<>();
-                        }
-                    });
-
-            // Try to get the exact price for the date
-            Double exactPrice = priceData.get(date);
-            if (exactPrice != null) {
-                return exactPrice;
-            }
+            MappedPriceHistory history = priceHistoryStore.open(itemName);
+            refreshIfNotCovered(itemName, history, date);
+            price = lookupPrice(history, itemName, date);
+            return price;
+        } catch (Exception e) {
+            logger.error("Error fetching price for {} on {}: {}", itemName, date, e.getMessage());
+            return DEFAULT_PRICE;
+        } finally {
+            priceLookupTime.recordSince(startNanos);
+            lookupEvent.finish(date, price);
+        }
+    }
 
-            // If not found, get the closest date
-            Map.Entry<LocalDate, Double> closestEntry = priceData.floorEntry(date);
-            if (closestEntry == null) {
-                closestEntry = priceData.ceilingEntry(date);
+    /**
+     * Looks up the prices of all days in one pass over a copy of the item's stored price history, refreshing it
+     * first if it does not cover the latest day. Days without a price of their own get the one of the closest
+     * earlier day, or of the first day if they lie before it.
+     */
+    @Override
+    public double[] fetchPricesForDates(String itemName, int[] sortedEpochDays) {
+        long startNanos = System.nanoTime();
+        PriceLookupEvent lookupEvent = PriceLookupEvent.start(itemName);
+        double[] prices = new double[sortedEpochDays.length];
+        try {
+            if (sortedEpochDays.length == 0) {
+                return prices;
             }
-
-            if (closestEntry != null) {
-                logger.info("Using price from {} for {} on {}", closestEntry.getKey(), itemName, date);
-                return closestEntry.getValue();
+            MappedPriceHistory history = priceHistoryStore.open(itemName);
+            refreshIfNotCovered(itemName, history, LocalDate.ofEpochDay(sortedEpochDays[sortedEpochDays.length - 1]));
+            PriceSeries series = history.toSeries();
+            if (series.isEmpty()) {
+                logger.warn("No price data available for {}, using the default price for {} dates",
+                        itemName, sortedEpochDays.length);
+                Arrays.fill(prices, DEFAULT_PRICE);
+                return prices;
             }
-
-            logger.warn("No price data available for {} on or near {}", itemName, date);
-            return DEFAULT_PRICE;
+            int approximated = series.floorPrices(sortedEpochDays, prices);
+            if (approximated > 0) {
+                logger.info("Using prices from nearby days for {} of {} dates of {}",
+                        approximated, sortedEpochDays.length, itemName);
+            }
+            return prices;
         } catch (Exception e) {
-            logger.error("Error fetching price for {} on {}: {}", itemName, date, e.getMessage());
-            return DEFAULT_PRICE;
+            logger.error("Error fetching prices for {}: {}", itemName, e.getMessage());
+            Arrays.fill(prices, DEFAULT_PRICE);
+            return prices;
+        } finally {
+            priceLookupTime.recordSince(startNanos);
+            lookupEvent.finish(sortedEpochDays.length);
         }
     }
 
-    private TreeMap<LocalDate, Double> fetchPriceData(String caseName) throws IOException {
-        // Ensure we respect the rate limit before making the request
-        rateLimiter.acquire();
-        String url = AppConfig.STEAM_MARKET_BASE_URL + caseName.replace(" ", "%20");
-        Map<String, String> headers = new HashMap<>();
-        headers.put("Cookie", "steamLoginSecure=" + cookie + "; Steam_Language=english");
+    /**
+     * Refreshes the item's stored price history from its listing unless it already covers the date.
+     */
+    private void refreshIfNotCovered(String itemName, MappedPriceHistory history, LocalDate date) {
+        if (history.covers(date)) {
+            return;
+        }
+        // Wait for a prefetch of the listing that is still running instead of requesting it again
+        CompletableFuture<Void> pending = pendingLoads.get(itemName);
+        if (pending != null) {
+            pending.join();
+        }
+        // The listing is fetched at most once per run, also by concurrent callers; only the days after the
+        // last stored one are appended
+        cacheService.get(itemName, name -> loadPriceData(name, history));
+    }
 
-        String response = get(url, headers);
-        Document doc = Jsoup.parse(response);
-        String scriptContent = extractScriptContent(doc);
-        return extractPriceData(scriptContent);
-    }
-
-    private String extractScriptContent(Document doc) {
-        return doc.select("script").stream()
-                .filter(element -> element.html().contains("$J(document).ready(function()"))
-                .findFirst()
-                .map(Element::html)
-                .orElse("");
-    }
-
-    private TreeMap<LocalDate, Double> extractPriceData(String scriptContent) {
-        Pattern pattern = Pattern.compile("\\$J\\(document\\)\\.ready\\(function\\(\\)\\s*\\{\\s*var line1=(\\[.*?]);", Pattern.DOTALL);
-        Matcher matcher = pattern.matcher(scriptContent);
-
-        if (matcher.find()) {
-            String line1Content = matcher.group(1);
-            Gson gson = new Gson();
-            List<List<Object>> rawData = gson.fromJson(line1Content, new TypeToken<List<List<Object>>>(){}.getType());
-
-            TreeMap<LocalDate, Double> priceData = new TreeMap<>();
-            for (List<Object> entry : rawData) {
-                try {
-                    String entryStr = (String) entry.getFirst();
-                    String[] parts = entryStr.split(" ");
-                    String dateStr = parts[0] + " " + parts[1] + " " + parts[2];
-                    LocalDate date = LocalDate.parse(dateStr, DATE_FORMATTER);
-                    double price = ((Number) entry.get(1)).doubleValue();
-                    priceData.put(date, price);
-                } catch (Exception e) {
-                    logger.warn("Skipping entry due to parsing error: {}", e.getMessage());
+    /**
+     * Refreshes the stored price histories of all given items that do not cover their latest date yet.
+     * All listings are requested asynchronously at once, paced by the HTTP layer's market rate limiter,
+     * and parsed as they arrive. A listing already being refreshed for another caller is not requested again.
+     * Blocks until every refresh has completed.
+     * @param latestDateByItem the latest date a price is needed for, by market hash name
+     */
+    @Override
+    public void prefetchPriceHistories(Map<String, LocalDate> latestDateByItem) {
+        List<CompletableFuture<Void>> loads = new ArrayList<>();
+        latestDateByItem.forEach((itemName, latestDate) -> {
+            try {
+                MappedPriceHistory history = priceHistoryStore.open(itemName);
+                if (!history.covers(latestDate) && cacheService.get(itemName).isEmpty()) {
+                    loads.add(refreshOnce(itemName, history));
                 }
+            } catch (IOException e) {
+                logger.error("Failed to open stored price history for {}: {}", itemName, e.getMessage());
             }
-            return priceData;
+        });
+        logger.info("Refreshing price histories for {} of {} items", loads.size(), latestDateByItem.size());
+        CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    private PriceSeries loadPriceData(String itemName, MappedPriceHistory history) {
+        PriceFetchEvent fetchEvent = PriceFetchEvent.start(itemName, false);
+        try {
+            PriceSeries fetchedData = fetchPriceData(itemName);
+            int storedDays = history.append(fetchedData);
+            logger.info("Stored {} new days of price history for {}", storedDays, itemName);
+            fetchEvent.finish(fetchedData.size(), storedDays);
+            return fetchedData;
+        } catch (IOException e) {
+            fetchEvent.finish(-1, 0);
+            logger.error("Failed to fetch price data for {}: {}", itemName, e.getMessage());
+            // The request has already been retried; caching no data keeps the listing from being requested again
+            // for every remaining event
+            return PriceSeries.empty();
         }
+    }
 
-        return new TreeMap<>();
+    private CompletableFuture<Void> refreshOnce(String itemName, MappedPriceHistory history) {
+        CompletableFuture<Void> refresh = new CompletableFuture<>();
+        CompletableFuture<Void> pending = pendingLoads.putIfAbsent(itemName, refresh);
+        if (pending != null) {
+            return pending;
+        }
+        if (cacheService.get(itemName).isPresent()) {
+            // Refreshed by another caller in the meantime
+            pendingLoads.remove(itemName, refresh);
+            refresh.complete(null);
+            return refresh;
+        }
+        loadPriceDataAsync(itemName, history).whenComplete((ignored, e) -> {
+            pendingLoads.remove(itemName, refresh);
+            refresh.complete(null);
+        });
+        return refresh;
+    }
+
+    private CompletableFuture<Void> loadPriceDataAsync(String itemName, MappedPriceHistory history) {
+        PriceFetchEvent fetchEvent = PriceFetchEvent.start(itemName, true);
+        return getAsync(priceDataUrl(itemName), priceDataHeaders(), PriceHistoryParser::parseRequired)
+                .thenAcceptAsync(fetchedData -> {
+                    int storedDays = 0;
+                    try {
+                        storedDays = history.append(fetchedData);
+                        logger.info("Stored {} new days of price history for {}", storedDays, itemName);
+                    } catch (IOException e) {
+                        logger.error("Failed to store price data for {}: {}", itemName, e.getMessage());
+                    }
+                    fetchEvent.finish(fetchedData.size(), storedDays);
+                    cacheService.put(itemName, fetchedData);
+                }, executor)
+                .exceptionally(e -> {
+                    fetchEvent.finish(-1, 0);
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    logger.error("Failed to fetch price data for {}: {}", itemName, cause.getMessage());
+                    // As for blocking fetches, the request has already been retried or the page was rejected
+                    cacheService.put(itemName, PriceSeries.empty());
+                    return null;
+                });
+    }
+
+    private double lookupPrice(MappedPriceHistory history, String itemName, LocalDate date) {
+        int index = history.floorIndex(date);
+        if (index < 0) {
+            if (history.size() == 0) {
+                logger.warn(LoggingConfig.SAMPLED, "No price data available for {} on or near {}", itemName, date);
+                return DEFAULT_PRICE;
+            }
+            // Date lies before the first stored day, use the closest day after it
+            index = 0;
+        }
+
+        LocalDate priceDate = history.dateAt(index);
+        if (!priceDate.equals(date)) {
+            logger.info(LoggingConfig.SAMPLED, "Using price from {} for {} on {}", priceDate, itemName, date);
+        }
+        return history.priceAt(index);
+    }
+
+    private PriceSeries fetchPriceData(String caseName) throws IOException {
+        return get(priceDataUrl(caseName), priceDataHeaders(), PriceHistoryParser::parseRequired);
+    }
+
+    private static String priceDataUrl(String caseName) {
+        return AppConfig.STEAM_MARKET_BASE_URL + caseName.replace(" ", "%20");
+    }
+
+    private Map<String, String> priceDataHeaders() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Cookie", "steamLoginSecure=" + cookie + "; Steam_Language=english");
+        return headers;
     }
 
     @Override
@@ -137,6 +251,21 @@ public class SteamMarketServiceImpl implements SteamMarketService, HttpClientSer
         return httpClientService.get(url, headers);
     }
 
+    @Override
+    public <T> T get(String url, Map<String, String> headers, BodyReader<T> bodyReader) throws IOException {
+        return httpClientService.get(url, headers, bodyReader);
+    }
+
+    @Override
+    public CompletableFuture<String> getAsync(String url, Map<String, String> headers) {
+        return httpClientService.getAsync(url, headers);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> getAsync(String url, Map<String, String> headers, BodyReader<T> bodyReader) {
+        return httpClientService.getAsync(url, headers, bodyReader);
+    }
+
     @Override
     public String post(String url, Map<String, String> headers, String body) throws IOException {
         return httpClientService.post(url, headers, body);
@@ -0,0 +1,145 @@
+package cla33ic.casefetcher.service.parser;
+
+import cla33ic.casefetcher.config.LoggingConfig;
+import cla33ic.casefetcher.metrics.jfr.PageParseEvent;
+import cla33ic.casefetcher.model.CaseOpeningEvent;
+import cla33ic.casefetcher.model.Rarity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Base class for case opening parsers. Subclasses only extract the raw fields of the history rows from the
+ * page HTML; turning those rows into events is shared, so that all implementations produce identical output.
+ */
+public abstract class AbstractCaseOpeningParser implements CaseOpeningParser {
+    private static final Logger logger = LoggerFactory.getLogger(AbstractCaseOpeningParser.class);
+    private static final Map<String, Integer> MONTH_MAP = createMonthMap();
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("d MMM, yyyy h:mma", Locale.ENGLISH);
+
+    protected static final String RENTAL_DESCRIPTION = "Unlocked a container for rental";
+    protected static final String UNKNOWN_KEY = "Unknown Key";
+
+    /**
+     * Raw fields of a history row whose event description contains "Unlocked a container".
+     * @param date the date text, or null if the row has none
+     * @param time the time text, or null if the row has none
+     * @param containerName the name of the first removed item, or null if nothing was removed
+     * @param keyUsed the name of the second removed item, or {@link #UNKNOWN_KEY}
+     * @param itemReceived the name of the first received item, or null if nothing was received
+     * @param classId the class id of the first received item, or null if nothing was received
+     * @param instanceId the instance id of the first received item, or null if nothing was received
+     * @param rental whether the container was unlocked for rental
+     */
+    protected record HistoryRow(String date, String time, String containerName, String keyUsed,
+                                String itemReceived, String classId, String instanceId, boolean rental) {
+    }
+
+    @Override
+    public List<CaseOpeningEvent> extractCaseOpenings(String html, ItemDescriptionIndex descriptions) {
+        PageParseEvent parseEvent = PageParseEvent.start(getClass().getSimpleName());
+        List<HistoryRow> rows = extractRows(html);
+
+        logger.info("Starting to extract case openings from {} rows", rows.size());
+
+        List<CaseOpeningEvent> events = new ArrayList<>(rows.size());
+        for (HistoryRow row : rows) {
+            CaseOpeningEvent event = createCaseOpeningEvent(row, descriptions);
+            if (event != null) {
+                events.add(event);
+            }
+        }
+
+        logger.info("Extracted {} case opening events", events.size());
+        parseEvent.finish(rows.size(), events.size());
+        return events;
+    }
+
+    /**
+     * Extracts the container unlock rows of a history page, in page order.
+     * @param html the HTML of the history page
+     * @return the raw rows
+     */
+    protected abstract List<HistoryRow> extractRows(String html);
+
+    private CaseOpeningEvent createCaseOpeningEvent(HistoryRow row, ItemDescriptionIndex descriptions) {
+        try {
+            LocalDateTime dateTime = extractDateTime(row);
+            if (dateTime == null) {
+                logger.error(LoggingConfig.SAMPLED, "Failed to extract date time from row");
+                return null;
+            }
+
+            String containerName = row.containerName();
+            if (containerName == null || !containerName.toLowerCase().contains("case")) {
+                return null;
+            }
+
+            boolean isRental = row.rental();
+            String itemReceived = isRental ? "Rental Item" : row.itemReceived();
+            String rarity = isRental ? Rarity.RENTAL.getDisplayName() : extractRarity(descriptions, row);
+
+            // Prices are filled in afterwards by the CasePriceResolver, once per crawl
+            return new CaseOpeningEvent(dateTime, containerName, row.keyUsed(), itemReceived, rarity, CaseOpeningEvent.PRICE_PENDING, isRental);
+        } catch (Exception e) {
+            logger.error(LoggingConfig.SAMPLED, "Failed to create CaseOpeningEvent: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private LocalDateTime extractDateTime(HistoryRow row) {
+        if (row.date() == null || row.time() == null) return null;
+
+        String dateStr = row.date();
+        String timeStr = row.time();
+        String dateTimeStr = dateStr + " " + timeStr;
+
+        try {
+            return LocalDateTime.parse(dateTimeStr, DATE_TIME_FORMATTER);
+        } catch (DateTimeParseException e) {
+            return parseManually(dateStr, timeStr);
+        }
+    }
+
+    private LocalDateTime parseManually(String dateStr, String timeStr) {
+        try {
+            String[] dateParts = dateStr.split(",");
+            String[] dayMonth = dateParts[0].trim().split(" ");
+            int day = Integer.parseInt(dayMonth[0]);
+            int month = MONTH_MAP.get(dayMonth[1].toUpperCase());
+            int year = Integer.parseInt(dateParts[1].trim());
+
+            String[] timeParts = timeStr.toLowerCase().replace("am", "").replace("pm", "").trim().split(":");
+            int hour = Integer.parseInt(timeParts[0]);
+            int minute = Integer.parseInt(timeParts[1]);
+
+            if (timeStr.toLowerCase().contains("pm") && hour != 12) hour += 12;
+            if (timeStr.toLowerCase().contains("am") && hour == 12) hour = 0;
+
+            return LocalDateTime.of(year, month, day, hour, minute);
+        } catch (Exception e) {
+            logger.error("Failed to parse date manually: {} {}", dateStr, timeStr, e);
+            return null;
+        }
+    }
+
+    private String extractRarity(ItemDescriptionIndex descriptions, HistoryRow row) {
+        if (row.classId() == null) return Rarity.UNKNOWN.getDisplayName();
+        return descriptions.rarityNameOf(row.classId(), row.instanceId());
+    }
+
+    private static Map<String, Integer> createMonthMap() {
+        return Map.ofEntries(
+                Map.entry("JAN", 1), Map.entry("FEB", 2), Map.entry("MAR", 3), Map.entry("APR", 4),
+                Map.entry("MAY", 5), Map.entry("JUN", 6), Map.entry("JUL", 7), Map.entry("AUG", 8),
+                Map.entry("SEP", 9), Map.entry("OCT", 10), Map.entry("NOV", 11), Map.entry("DEC", 12)
+        );
+    }
+}
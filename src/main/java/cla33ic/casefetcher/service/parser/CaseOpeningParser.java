@@ -1,13 +1,12 @@
 package cla33ic.casefetcher.service.parser;
 
 import cla33ic.casefetcher.model.CaseOpeningEvent;
-import com.google.gson.JsonObject;
 
 import java.util.List;
 
 /**
- * Interface for parsing case opening events from HTML and JSON data.
+ * Interface for parsing case opening events from the HTML and item descriptions of a history page.
  */
 public interface CaseOpeningParser {
-    List<CaseOpeningEvent> extractCaseOpenings(String html, JsonObject responseJson);
+    List<CaseOpeningEvent> extractCaseOpenings(String html, ItemDescriptionIndex descriptions);
 }
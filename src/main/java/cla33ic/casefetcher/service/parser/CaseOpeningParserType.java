@@ -0,0 +1,28 @@
+package cla33ic.casefetcher.service.parser;
+
+import java.util.Locale;
+
+/**
+ * Available {@link CaseOpeningParser} implementations.
+ */
+public enum CaseOpeningParserType {
+    /** Builds a Jsoup document per page and selects the rows with CSS selectors. */
+    JSOUP,
+    /** Walks the page HTML once without building a document. */
+    STREAMING;
+
+    public CaseOpeningParser create() {
+        return switch (this) {
+            case JSOUP -> new CaseOpeningParserImpl();
+            case STREAMING -> new StreamingCaseOpeningParser();
+        };
+    }
+
+    public static CaseOpeningParserType fromName(String name) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown parser: " + name);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package cla33ic.casefetcher.service.parser;
+
+import cla33ic.casefetcher.model.Rarity;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rarities of the items described on one history page, keyed by {@code classid_instanceid}.
+ * <p>
+ * The index is built once per page while the response is decoded. Items already in the {@link RarityCache}
+ * are taken from it and their description is skipped unread; all others are resolved from their tags once
+ * and added to the cache. Items whose rarity color is not in the {@link Rarity} table are kept with their color
+ * and not cached, so that they are resolved again once the table knows the color.
+ */
+public class ItemDescriptionIndex {
+    private final Map<String, Rarity> rarities;
+    // Rarity colors of the items of unknown rarity that have one
+    private final Map<String, String> unknownColors;
+
+    public ItemDescriptionIndex(Map<String, Rarity> rarities) {
+        this(rarities, Map.of());
+    }
+
+    private ItemDescriptionIndex(Map<String, Rarity> rarities, Map<String, String> unknownColors) {
+        this.rarities = rarities;
+        this.unknownColors = unknownColors;
+    }
+
+    public static ItemDescriptionIndex empty() {
+        return new ItemDescriptionIndex(Map.of());
+    }
+
+    /**
+     * Reads the value of a history response's {@code descriptions} field, using the global rarity cache.
+     * @param reader a reader positioned at the value
+     * @return the index of the page
+     */
+    public static ItemDescriptionIndex read(JsonReader reader) throws IOException {
+        return read(reader, RarityCache.global());
+    }
+
+    public static ItemDescriptionIndex read(JsonReader reader, RarityCache rarityCache) throws IOException {
+        Map<String, Rarity> rarities = new HashMap<>();
+        Map<String, String> unknownColors = new HashMap<>();
+        // Steam sends an empty array instead of an empty object when a page has no descriptions
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return new ItemDescriptionIndex(rarities);
+        }
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!"730".equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                Rarity rarity = rarityCache.get(key);
+                if (rarity != null) {
+                    reader.skipValue();
+                } else {
+                    String color = readRarityColor(reader);
+                    rarity = color == null ? Rarity.UNKNOWN : Rarity.fromColorCode(color);
+                    if (rarity != Rarity.UNKNOWN) {
+                        rarityCache.put(key, rarity);
+                    } else if (color != null) {
+                        unknownColors.put(key, color);
+                    }
+                }
+                rarities.put(key, rarity);
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+        return new ItemDescriptionIndex(rarities, unknownColors);
+    }
+
+    /**
+     * @return the rarity of the item, or {@link Rarity#UNKNOWN} if the page does not describe it
+     */
+    public Rarity rarityOf(String classId, String instanceId) {
+        return rarities.getOrDefault(classId + "_" + instanceId, Rarity.UNKNOWN);
+    }
+
+    /**
+     * @return the display name of the item's rarity, including the color if it is not in the {@link Rarity} table
+     */
+    public String rarityNameOf(String classId, String instanceId) {
+        String key = classId + "_" + instanceId;
+        String unknownColor = unknownColors.get(key);
+        if (unknownColor != null) {
+            return Rarity.displayNameOf(unknownColor);
+        }
+        return rarities.getOrDefault(key, Rarity.UNKNOWN).getDisplayName();
+    }
+
+    /**
+     * Reads one item description, looking only at its tags.
+     * @return the color of its first "Rarity" tag, or {@code null} if it has none
+     */
+    private static String readRarityColor(JsonReader reader) throws IOException {
+        String rarityColor = null;
+        boolean rarityTagRead = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!"tags".equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                String category = null;
+                String color = null;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "category" -> category = reader.nextString();
+                        case "color" -> color = reader.nextString();
+                        default -> reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                if (!rarityTagRead && "Rarity".equals(category)) {
+                    rarityTagRead = true;
+                    rarityColor = color;
+                }
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+        return rarityColor;
+    }
+}
@@ -0,0 +1,95 @@
+package cla33ic.casefetcher.service.parser;
+
+import cla33ic.casefetcher.config.AppConfig;
+import cla33ic.casefetcher.model.Rarity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide, size-bounded cache of item rarities keyed by {@code classid_instanceid}, evicting the least
+ * recently used entries. It can be saved to and loaded from a file, so rarities resolved in earlier runs are
+ * known up front. Only known rarities are cached, so that an item of unknown rarity is resolved again on its
+ * next page.
+ */
+public final class RarityCache {
+    private static final Logger logger = LoggerFactory.getLogger(RarityCache.class);
+    private static final RarityCache GLOBAL = new RarityCache(AppConfig.RARITY_CACHE_SIZE);
+
+    private final Map<String, Rarity> entries;
+
+    public RarityCache(int maxSize) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Rarity> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public static RarityCache global() {
+        return GLOBAL;
+    }
+
+    public synchronized Rarity get(String key) {
+        return entries.get(key);
+    }
+
+    public synchronized void put(String key, Rarity rarity) {
+        entries.put(key, rarity);
+    }
+
+    /**
+     * Loads the entries saved by {@link #save(Path)}; a missing file is ignored.
+     */
+    public synchronized void load(Path file) {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf('\t');
+                if (separator > 0) {
+                    try {
+                        Rarity rarity = Rarity.valueOf(line.substring(separator + 1));
+                        if (rarity != Rarity.UNKNOWN) {
+                            entries.put(line.substring(0, separator), rarity);
+                        }
+                    } catch (IllegalArgumentException e) {
+                        logger.debug("Skipping unknown rarity in {}: {}", file, line);
+                    }
+                }
+            }
+            logger.info("Loaded {} item rarities from {}", entries.size(), file);
+        } catch (IOException e) {
+            logger.error("Error loading item rarities: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Saves all entries, one {@code classid_instanceid<TAB>RARITY} line each.
+     */
+    public synchronized void save(Path file) {
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+                for (Map.Entry<String, Rarity> entry : entries.entrySet()) {
+                    writer.write(entry.getKey());
+                    writer.write('\t');
+                    writer.write(entry.getValue().name());
+                    writer.newLine();
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Error saving item rarities: {}", e.getMessage());
+        }
+    }
+}
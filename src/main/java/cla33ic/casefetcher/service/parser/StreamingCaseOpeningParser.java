@@ -0,0 +1,536 @@
+package cla33ic.casefetcher.service.parser;
+
+import org.jsoup.parser.Parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Case opening parser that walks the page HTML once as a stream of tags and text, without building a DOM.
+ * <p>
+ * It tracks the open elements on a small stack and only collects the text of the elements it needs: the date,
+ * timestamp and event description of each row, and the names and ids of the items in the groups that follow
+ * a "-" or "+" marker. Text is decoded and whitespace-normalized the way Jsoup does, so both parsers produce
+ * identical events.
+ */
+public class StreamingCaseOpeningParser extends AbstractCaseOpeningParser {
+
+    @Override
+    protected List<HistoryRow> extractRows(String html) {
+        return new RowScanner(html).scan();
+    }
+
+    /**
+     * Single-use scanner over the HTML of one page.
+     */
+    private static final class RowScanner {
+        // Roles of open elements
+        private static final int OTHER = 0;
+        private static final int ROW = 1;
+        private static final int DATE = 2;
+        private static final int TIMESTAMP = 3;
+        private static final int DESCRIPTION = 4;
+        private static final int PLUSMINUS = 5;
+        private static final int GROUP = 6;
+        private static final int ITEM = 7;
+        private static final int ITEM_NAME = 8;
+        // Text captures; NONE discards the text
+        private static final int NONE = -1;
+
+        private static final String[] VOID_ELEMENTS = {
+                "img", "br", "hr", "input", "meta", "link", "area", "base", "col", "embed", "source", "track", "wbr", "param"
+        };
+        private static final String UNLOCKED_A_CONTAINER = "unlocked a container";
+        private static final int MAX_ENTITY_LENGTH = 10;
+        private static final Map<String, Integer> NAMED_ENTITIES = Map.of(
+                "amp", (int) '&', "lt", (int) '<', "gt", (int) '>', "quot", (int) '"', "apos", (int) '\'',
+                "nbsp", 0xA0, "trade", 0x2122, "reg", 0xAE, "copy", 0xA9, "star", 0x2606);
+
+        private final String html;
+        private final List<HistoryRow> rows = new ArrayList<>();
+
+        // Stack of open elements: tag name position in the HTML, role and text capture
+        private int[] nameStarts = new int[32];
+        private int[] nameLengths = new int[32];
+        private int[] roles = new int[32];
+        private int[] captures = new int[32];
+        private int depth;
+
+        // Attributes of the tag currently being read
+        private int classStart;
+        private int classEnd;
+        private String classId;
+        private String instanceId;
+
+        // State of the current row
+        private int rowDepth = -1;
+        private final StringBuilder date = new StringBuilder();
+        private final StringBuilder time = new StringBuilder();
+        private final StringBuilder description = new StringBuilder();
+        private final StringBuilder plusMinus = new StringBuilder();
+        private final StringBuilder itemName = new StringBuilder();
+        private boolean hasDate;
+        private boolean hasTime;
+        private final List<String> minusNames = new ArrayList<>();
+        private String plusName;
+        private String plusClassId;
+        private String plusInstanceId;
+
+        // Sibling tracking: a group only counts if it directly follows a plusminus marker
+        private int signDepth = -1;
+        private char sign;
+        private int groupDepth = -1;
+        private char groupSign;
+        private int itemDepth = -1;
+        private boolean itemIsPlus;
+        private String itemClassId;
+        private String itemInstanceId;
+
+        private RowScanner(String html) {
+            this.html = html;
+        }
+
+        private List<HistoryRow> scan() {
+            int length = html.length();
+            int position = 0;
+            while (position < length) {
+                int tagStart = html.indexOf('<', position);
+                int textEnd = tagStart < 0 ? length : tagStart;
+                if (textEnd > position) {
+                    onText(position, textEnd);
+                }
+                if (tagStart < 0) {
+                    break;
+                }
+                position = readTag(tagStart);
+            }
+            while (depth > 0) {
+                pop();
+            }
+            return rows;
+        }
+
+        private int readTag(int tagStart) {
+            int length = html.length();
+            if (html.startsWith("<!--", tagStart)) {
+                int end = html.indexOf("-->", tagStart + 4);
+                return end < 0 ? length : end + 3;
+            }
+            if (tagStart + 1 >= length) {
+                return length;
+            }
+            char next = html.charAt(tagStart + 1);
+            if (next == '!' || next == '?') {
+                int end = html.indexOf('>', tagStart);
+                return end < 0 ? length : end + 1;
+            }
+            if (next == '/') {
+                int nameStart = tagStart + 2;
+                int nameEnd = nameEnd(nameStart);
+                int end = html.indexOf('>', nameEnd);
+                onEndTag(nameStart, nameEnd - nameStart);
+                return end < 0 ? length : end + 1;
+            }
+            if (!Character.isLetter(next)) {
+                // A lone '<' is text
+                onText(tagStart, tagStart + 1);
+                return tagStart + 1;
+            }
+
+            int nameStart = tagStart + 1;
+            int nameEnd = nameEnd(nameStart);
+            int end = readAttributes(nameEnd);
+            boolean selfClosing = end > 0 && html.charAt(end - 1) == '/';
+            int nameLength = nameEnd - nameStart;
+
+            if (isTag(nameStart, nameLength, "script") || isTag(nameStart, nameLength, "style")) {
+                // Raw text elements, skip their content entirely
+                int close = indexOfIgnoreCase("</" + html.substring(nameStart, nameEnd), end);
+                int closeEnd = close < 0 ? -1 : html.indexOf('>', close);
+                return closeEnd < 0 ? length : closeEnd + 1;
+            }
+            if (!selfClosing && !isVoidElement(nameStart, nameLength)) {
+                onStartTag(nameStart, nameLength);
+            }
+            return end < 0 ? length : end + 1;
+        }
+
+        /**
+         * Reads the attributes of a start tag, remembering the ones of interest.
+         * @return the position of the closing '>', or -1 if the tag is not closed
+         */
+        private int readAttributes(int position) {
+            classStart = -1;
+            classEnd = -1;
+            classId = null;
+            instanceId = null;
+            int length = html.length();
+            while (position < length) {
+                char c = html.charAt(position);
+                if (c == '>') {
+                    return position;
+                }
+                if (Character.isWhitespace(c) || c == '/') {
+                    position++;
+                    continue;
+                }
+                int attributeStart = position;
+                while (position < length && "=>/ \t\n\r\f".indexOf(html.charAt(position)) < 0) {
+                    position++;
+                }
+                int attributeLength = position - attributeStart;
+                while (position < length && Character.isWhitespace(html.charAt(position))) {
+                    position++;
+                }
+                if (position >= length || html.charAt(position) != '=') {
+                    continue;
+                }
+                position++;
+                while (position < length && Character.isWhitespace(html.charAt(position))) {
+                    position++;
+                }
+                int valueStart;
+                int valueEnd;
+                if (position < length && (html.charAt(position) == '"' || html.charAt(position) == '\'')) {
+                    char quote = html.charAt(position);
+                    valueStart = position + 1;
+                    valueEnd = html.indexOf(quote, valueStart);
+                    if (valueEnd < 0) {
+                        return -1;
+                    }
+                    position = valueEnd + 1;
+                } else {
+                    valueStart = position;
+                    while (position < length && html.charAt(position) != '>' && !Character.isWhitespace(html.charAt(position))) {
+                        position++;
+                    }
+                    valueEnd = position;
+                }
+
+                if (isTag(attributeStart, attributeLength, "class")) {
+                    classStart = valueStart;
+                    classEnd = valueEnd;
+                } else if (isTag(attributeStart, attributeLength, "data-classid")) {
+                    classId = attributeValue(valueStart, valueEnd);
+                } else if (isTag(attributeStart, attributeLength, "data-instanceid")) {
+                    instanceId = attributeValue(valueStart, valueEnd);
+                }
+            }
+            return -1;
+        }
+
+        private void onStartTag(int nameStart, int nameLength) {
+            int parentCapture = depth > 0 ? captures[depth - 1] : NONE;
+            int role = OTHER;
+            boolean isDiv = isTag(nameStart, nameLength, "div");
+
+            // The element directly after a plusminus marker decides whether a group starts
+            boolean followsSign = signDepth == depth;
+            signDepth = -1;
+
+            if (isDiv && hasClass("tradehistoryrow")) {
+                role = ROW;
+            } else if (rowDepth >= 0) {
+                if (isDiv && hasClass("tradehistory_date")) {
+                    role = DATE;
+                } else if (isDiv && hasClass("tradehistory_timestamp")) {
+                    role = TIMESTAMP;
+                } else if (isDiv && hasClass("tradehistory_event_description")) {
+                    role = DESCRIPTION;
+                } else if (isDiv && hasClass("tradehistory_items_plusminus")) {
+                    role = PLUSMINUS;
+                } else if (isDiv && followsSign && groupDepth < 0 && hasClass("tradehistory_items_group")) {
+                    role = GROUP;
+                } else if (groupDepth >= 0 && itemDepth < 0 && hasClass("history_item")
+                        && (groupSign == '-' ? isTag(nameStart, nameLength, "span") : isTag(nameStart, nameLength, "a"))) {
+                    role = ITEM;
+                } else if (itemDepth >= 0 && isTag(nameStart, nameLength, "span") && hasClass("history_item_name")) {
+                    role = ITEM_NAME;
+                }
+            }
+
+            int capture = parentCapture == DATE ? NONE : parentCapture;
+            switch (role) {
+                case ROW -> startRow();
+                case DATE -> capture = hasDate ? NONE : DATE;
+                case TIMESTAMP -> capture = hasTime ? NONE : TIMESTAMP;
+                case DESCRIPTION -> {
+                    capture = DESCRIPTION;
+                    description.append(' ');
+                }
+                case PLUSMINUS -> {
+                    capture = PLUSMINUS;
+                    plusMinus.setLength(0);
+                }
+                case GROUP -> {
+                    groupDepth = depth;
+                    groupSign = sign;
+                }
+                case ITEM -> {
+                    itemDepth = depth;
+                    itemIsPlus = groupSign == '+';
+                    itemClassId = classId != null ? classId : "";
+                    itemInstanceId = instanceId != null ? instanceId : "";
+                    itemName.setLength(0);
+                }
+                case ITEM_NAME -> {
+                    capture = ITEM_NAME;
+                    if (!itemName.isEmpty()) {
+                        itemName.append(' ');
+                    }
+                }
+                default -> {
+                }
+            }
+            push(nameStart, nameLength, role, capture);
+        }
+
+        private void onEndTag(int nameStart, int nameLength) {
+            for (int i = depth - 1; i >= 0; i--) {
+                if (nameLengths[i] == nameLength && html.regionMatches(true, nameStarts[i], html, nameStart, nameLength)) {
+                    while (depth > i) {
+                        pop();
+                    }
+                    return;
+                }
+            }
+            // Stray end tag without a matching start tag
+        }
+
+        private void onText(int start, int end) {
+            if (depth == 0 || rowDepth < 0) {
+                return;
+            }
+            switch (captures[depth - 1]) {
+                case DATE -> date.append(html, start, end);
+                case TIMESTAMP -> time.append(html, start, end);
+                case DESCRIPTION -> description.append(html, start, end);
+                case PLUSMINUS -> plusMinus.append(html, start, end);
+                case ITEM_NAME -> itemName.append(html, start, end);
+                default -> {
+                }
+            }
+        }
+
+        private void push(int nameStart, int nameLength, int role, int capture) {
+            if (depth == roles.length) {
+                int capacity = depth * 2;
+                nameStarts = Arrays.copyOf(nameStarts, capacity);
+                nameLengths = Arrays.copyOf(nameLengths, capacity);
+                roles = Arrays.copyOf(roles, capacity);
+                captures = Arrays.copyOf(captures, capacity);
+            }
+            nameStarts[depth] = nameStart;
+            nameLengths[depth] = nameLength;
+            roles[depth] = role;
+            captures[depth] = capture;
+            depth++;
+        }
+
+        private void pop() {
+            depth--;
+            if (signDepth > depth) {
+                // The parent of the marker closed before another sibling started
+                signDepth = -1;
+            }
+            switch (roles[depth]) {
+                case ROW -> endRow();
+                case DATE -> hasDate = true;
+                case TIMESTAMP -> hasTime = true;
+                case PLUSMINUS -> {
+                    String marker = plusMinus.toString();
+                    sign = marker.indexOf('-') >= 0 ? '-' : marker.indexOf('+') >= 0 ? '+' : 0;
+                    signDepth = sign != 0 ? depth : -1;
+                }
+                case GROUP -> groupDepth = -1;
+                case ITEM -> endItem();
+                default -> {
+                }
+            }
+        }
+
+        private void startRow() {
+            rowDepth = depth;
+            date.setLength(0);
+            time.setLength(0);
+            description.setLength(0);
+            hasDate = false;
+            hasTime = false;
+            minusNames.clear();
+            plusName = null;
+            plusClassId = null;
+            plusInstanceId = null;
+            signDepth = -1;
+            groupDepth = -1;
+            itemDepth = -1;
+        }
+
+        private void endItem() {
+            itemDepth = -1;
+            String name = normalize(itemName);
+            if (!itemIsPlus) {
+                minusNames.add(name);
+            } else if (plusName == null) {
+                plusName = name;
+                plusClassId = itemClassId;
+                plusInstanceId = itemInstanceId;
+            }
+        }
+
+        private void endRow() {
+            rowDepth = -1;
+            String descriptionText = normalize(description);
+            if (!descriptionText.toLowerCase().contains(UNLOCKED_A_CONTAINER)) {
+                return;
+            }
+            rows.add(new HistoryRow(
+                    hasDate ? normalize(date) : null,
+                    hasTime ? normalize(time) : null,
+                    minusNames.isEmpty() ? null : minusNames.get(0),
+                    minusNames.size() > 1 ? minusNames.get(1) : UNKNOWN_KEY,
+                    plusName,
+                    plusClassId,
+                    plusInstanceId,
+                    descriptionText.contains(RENTAL_DESCRIPTION)));
+        }
+
+        private boolean hasClass(String className) {
+            if (classStart < 0) {
+                return false;
+            }
+            int length = className.length();
+            int position = classStart;
+            while (position < classEnd) {
+                while (position < classEnd && Character.isWhitespace(html.charAt(position))) {
+                    position++;
+                }
+                int tokenStart = position;
+                while (position < classEnd && !Character.isWhitespace(html.charAt(position))) {
+                    position++;
+                }
+                if (position - tokenStart == length && html.startsWith(className, tokenStart)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean isTag(int nameStart, int nameLength, String name) {
+            return nameLength == name.length() && html.regionMatches(true, nameStart, name, 0, nameLength);
+        }
+
+        private boolean isVoidElement(int nameStart, int nameLength) {
+            for (String voidElement : VOID_ELEMENTS) {
+                if (isTag(nameStart, nameLength, voidElement)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int nameEnd(int position) {
+            int length = html.length();
+            while (position < length && "=>/ \t\n\r\f".indexOf(html.charAt(position)) < 0) {
+                position++;
+            }
+            return position;
+        }
+
+        private int indexOfIgnoreCase(String text, int from) {
+            int last = html.length() - text.length();
+            for (int i = Math.max(from, 0); i <= last; i++) {
+                if (html.regionMatches(true, i, text, 0, text.length())) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private String attributeValue(int start, int end) {
+            String value = html.substring(start, end);
+            return value.indexOf('&') >= 0 ? decodeEntities(value, true) : value;
+        }
+
+        /**
+         * Decodes numeric and common named entities directly, and leaves anything unusual to Jsoup,
+         * whose decoder is exact but sets up a full tokenizer per call.
+         */
+        private static String decodeEntities(String text, boolean inAttribute) {
+            StringBuilder decoded = new StringBuilder(text.length());
+            int position = 0;
+            while (position < text.length()) {
+                char c = text.charAt(position);
+                if (c != '&') {
+                    decoded.append(c);
+                    position++;
+                    continue;
+                }
+                int semicolon = text.indexOf(';', position);
+                if (semicolon < 0 || semicolon - position > MAX_ENTITY_LENGTH) {
+                    return Parser.unescapeEntities(text, inAttribute);
+                }
+                int codePoint = decodeEntity(text, position + 1, semicolon);
+                if (codePoint < 0) {
+                    return Parser.unescapeEntities(text, inAttribute);
+                }
+                decoded.appendCodePoint(codePoint);
+                position = semicolon + 1;
+            }
+            return decoded.toString();
+        }
+
+        /**
+         * @return the code point of the entity between '&' and ';', or -1 if it is not handled here
+         */
+        private static int decodeEntity(String text, int start, int end) {
+            if (start < end && text.charAt(start) == '#') {
+                boolean hex = start + 1 < end && (text.charAt(start + 1) == 'x' || text.charAt(start + 1) == 'X');
+                int digitsStart = hex ? start + 2 : start + 1;
+                if (digitsStart == end) {
+                    return -1;
+                }
+                int codePoint = 0;
+                for (int i = digitsStart; i < end; i++) {
+                    int digit = Character.digit(text.charAt(i), hex ? 16 : 10);
+                    if (digit < 0) {
+                        return -1;
+                    }
+                    codePoint = codePoint * (hex ? 16 : 10) + digit;
+                }
+                // Jsoup remaps the Windows-1252 range and replaces invalid code points, leave those to it
+                boolean plain = codePoint > 0 && codePoint < 0x80 || codePoint > 0x9F && codePoint < Character.MIN_SURROGATE
+                        || codePoint > Character.MAX_SURROGATE && codePoint <= Character.MAX_CODE_POINT;
+                return plain ? codePoint : -1;
+            }
+            return NAMED_ENTITIES.getOrDefault(text.substring(start, end), -1);
+        }
+
+        /**
+         * Decodes entities and collapses whitespace like Jsoup's text(): runs of whitespace become one space,
+         * leading and trailing whitespace and invisible characters are dropped.
+         */
+        private static String normalize(CharSequence raw) {
+            String text = raw.toString();
+            if (text.indexOf('&') >= 0) {
+                text = decodeEntities(text, false);
+            }
+            StringBuilder normalized = new StringBuilder(text.length());
+            boolean pendingSpace = false;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == ' ' || c == '\t' || c == '\n' || c == '\f' || c == '\r' || c == '\u00a0') {
+                    pendingSpace = !normalized.isEmpty();
+                } else if (c != '\u200b' && c != '\u00ad') {
+                    if (pendingSpace) {
+                        normalized.append(' ');
+                        pendingSpace = false;
+                    }
+                    normalized.append(c);
+                }
+            }
+            return normalized.toString();
+        }
+    }
+}
@@ -1,7 +1,14 @@
 package cla33ic.casefetcher.util;
 
+import cla33ic.casefetcher.cache.EventLog;
+import cla33ic.casefetcher.config.AppConfig;
+import cla33ic.casefetcher.metrics.LatencyHistogram;
+import cla33ic.casefetcher.metrics.MetricsRegistry;
+import cla33ic.casefetcher.metrics.jfr.CachePersistEvent;
 import cla33ic.casefetcher.model.CaseOpeningEvent;
 import cla33ic.casefetcher.model.CaseOpeningSummary;
+import cla33ic.casefetcher.report.ReportFormat;
+import cla33ic.casefetcher.report.ReportWriter;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
@@ -10,87 +17,179 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class CachedResultsHandler {
     private static final Logger logger = LoggerFactory.getLogger(CachedResultsHandler.class);
-    private static final String RESULTS_DIR = "results";
+    private static final String RESULTS_DIR = AppConfig.RESULTS_DIR;
 
-    // Updated Gson instance without .setLenient() and with custom LocalDateTime adapter.
+    // Gson instance with custom LocalDateTime adapter, only needed to migrate JSON caches of earlier versions.
     private static final Gson gson = new GsonBuilder()
             .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
             .create();
 
-    // We store the raw events in a JSON cache for easy reloading.
-    // Also generate a human-readable text file.
-    // File names: {accountId}_case_opening_results.txt and {accountId}_cache.json
-    public static void saveCachedEvents(String accountId, List<CaseOpeningEvent> events, CaseOpeningSummary summary) {
+    private static final Map<String, EventLog> eventLogs = new ConcurrentHashMap<>();
+
+    private static final int REPORT_BUFFER_SIZE = 1 << 16;
+
+    private static final LatencyHistogram loadTime =
+            MetricsRegistry.global().histogram("casefetcher_results_io_seconds", "operation", "load");
+    private static final LatencyHistogram saveTime =
+            MetricsRegistry.global().histogram("casefetcher_results_io_seconds", "operation", "save");
+
+    /**
+     * Writes the human-readable report ({accountId}_case_opening_results.txt) and, for other formats,
+     * an additional export of the events ({accountId}_case_opening_results.csv or .jsonl).
+     */
+    public static void saveReport(String accountId, List<CaseOpeningEvent> events, CaseOpeningSummary summary, ReportFormat format) {
+        long startNanos = System.nanoTime();
+        CachePersistEvent persistEvent = CachePersistEvent.start("report", accountId);
         try {
             // Ensure results directory exists
-            Path resultsDir = Paths.get(RESULTS_DIR);
-            if (!Files.exists(resultsDir)) {
-                Files.createDirectory(resultsDir);
-            }
-            // Save human-readable text file
-            String txtFileName = RESULTS_DIR + "/" + accountId + "_case_opening_results.txt";
-            try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(txtFileName))) {
-                writer.write(summary.toString());
-                writer.write("\n\nDetailed Case Opening Events:\n");
-                for (CaseOpeningEvent event : events) {
-                    writer.write(event.toString());
-                    writer.newLine();
-                }
+            Files.createDirectories(Paths.get(RESULTS_DIR));
+            writeReport(accountId, events, summary, ReportFormat.TEXT);
+            if (format != ReportFormat.TEXT) {
+                writeReport(accountId, events, summary, format);
             }
-            // Save JSON cache file
-            String jsonFileName = RESULTS_DIR + "/" + accountId + "_cache.json";
-            try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(jsonFileName))) {
-                writer.write(gson.toJson(events));
-            }
-            logger.info("Results saved to {} and cache updated in {}", txtFileName, jsonFileName);
-            System.out.println(TerminalColor.colorize("Results saved to " + txtFileName, TerminalColor.GREEN));
         } catch (IOException e) {
-            logger.error("Error saving cached results: {}", e.getMessage());
+            logger.error("Error saving results: {}", e.getMessage());
+        } finally {
+            saveTime.recordSince(startNanos);
+            persistEvent.finish(events.size());
+        }
+    }
+
+    /**
+     * Appends the events fetched in this run to the account's binary event log ({accountId}_events/).
+     */
+    public static void appendCachedEvents(String accountId, List<CaseOpeningEvent> newEvents) {
+        long startNanos = System.nanoTime();
+        CachePersistEvent persistEvent = CachePersistEvent.start("append", accountId);
+        try {
+            eventLogFor(accountId).append(newEvents);
+            logger.info("Appended {} new events to the event log of account {}", newEvents.size(), accountId);
+        } catch (IOException e) {
+            logger.error("Error saving cached events: {}", e.getMessage());
+        } finally {
+            saveTime.recordSince(startNanos);
+            persistEvent.finish(newEvents.size());
+        }
+    }
+
+    private static void writeReport(String accountId, List<CaseOpeningEvent> events, CaseOpeningSummary summary,
+                                    ReportFormat format) throws IOException {
+        String fileName = RESULTS_DIR + "/" + accountId + "_case_opening_results." + format.getFileExtension();
+        try (Writer sink = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(Paths.get(fileName)),
+                StandardCharsets.UTF_8), REPORT_BUFFER_SIZE)) {
+            ReportWriter reportWriter = ReportWriter.create(format, sink);
+            reportWriter.writeHeader(summary);
+            reportWriter.writeEvents(events, -1);
         }
+        logger.info("Results saved to {}", fileName);
+        System.out.println(TerminalColor.colorize("Results saved to " + fileName, TerminalColor.GREEN));
     }
 
     public static List<CaseOpeningEvent> loadCachedEvents(String accountId) {
+        EventLog eventLog = eventLogFor(accountId);
+        long startNanos = System.nanoTime();
+        CachePersistEvent persistEvent = CachePersistEvent.start("load", accountId);
+        List<CaseOpeningEvent> events = new ArrayList<>();
+        try {
+            if (eventLog.exists()) {
+                events = eventLog.readAll();
+                logger.info("Loaded {} cached events for account {}", events.size(), accountId);
+            } else {
+                events = migrateLegacyCache(accountId, eventLog);
+            }
+            return events;
+        } catch (IOException e) {
+            logger.error("Error loading cached events: {}", e.getMessage());
+            return events;
+        } finally {
+            loadTime.recordSince(startNanos);
+            persistEvent.finish(events.size());
+        }
+    }
+
+    /**
+     * Moves the events of a JSON cache written by earlier versions into the event log. The JSON cache is kept,
+     * renamed with a {@code .migrated} suffix, so that it is not migrated again.
+     */
+    private static List<CaseOpeningEvent> migrateLegacyCache(String accountId, EventLog eventLog) throws IOException {
         String jsonFileName = RESULTS_DIR + "/" + accountId + "_cache.json";
         Path path = Paths.get(jsonFileName);
         if (!Files.exists(path)) {
             logger.info("No cache file found for account {}", accountId);
             return new ArrayList<>();
         }
+        List<CaseOpeningEvent> events = new ArrayList<>();
         try (BufferedReader reader = Files.newBufferedReader(path)) {
-            Type listType = new TypeToken<List<CaseOpeningEvent>>(){}.getType();
-            List<CaseOpeningEvent> events = gson.fromJson(reader, listType);
-            logger.info("Loaded {} cached events for account {}", events.size(), accountId);
-            return events;
-        } catch (IOException e) {
-            logger.error("Error loading cached events: {}", e.getMessage());
-            return new ArrayList<>();
+            Type listType = new TypeToken<List<LegacyCachedEvent>>(){}.getType();
+            List<LegacyCachedEvent> legacyEvents = gson.fromJson(reader, listType);
+            if (legacyEvents == null) {
+                // Gson returns null for an empty file
+                legacyEvents = List.of();
+            }
+            for (LegacyCachedEvent legacyEvent : legacyEvents) {
+                events.add(legacyEvent.toEvent());
+            }
         }
+        eventLog.append(events);
+        Path migratedPath = Paths.get(jsonFileName + ".migrated");
+        Files.move(path, migratedPath, StandardCopyOption.REPLACE_EXISTING);
+        logger.info("Migrated {} cached events for account {} from {} to the event log, kept the old cache as {}",
+                events.size(), accountId, jsonFileName, migratedPath);
+        return events;
+    }
+
+    private static EventLog eventLogFor(String accountId) {
+        return eventLogs.computeIfAbsent(accountId, id -> new EventLog(Paths.get(RESULTS_DIR, id + "_events")));
     }
 
     /**
-     * Merge cached events with newly fetched events. Assumes that events are unique based on their toString output.
+     * Merge cached events with newly fetched events. Events are identical if their natural keys match
+     * (see {@link EventFingerprintIndex}); a fresh event replaces an identical cached one.
+     * @return the merged events, most recent first
      */
     public static List<CaseOpeningEvent> mergeEvents(List<CaseOpeningEvent> cached, List<CaseOpeningEvent> fresh) {
-        // Use a LinkedHashMap to preserve order (most recent first) and avoid duplicates.
-        // We'll key on the toString representation.
-        java.util.Map<String, CaseOpeningEvent> merged = new java.util.LinkedHashMap<>();
-        // Add cached events first
-        for (CaseOpeningEvent event : cached) {
-            merged.put(event.toString(), event);
+        EventFingerprintIndex positions = new EventFingerprintIndex(cached.size() + fresh.size());
+        List<CaseOpeningEvent> merged = new ArrayList<>(cached.size() + fresh.size());
+        addOrReplace(cached, positions, merged);
+        addOrReplace(fresh, positions, merged);
+        // Both lists consist of a few descending runs, which the sort merges in close to linear time
+        merged.sort(Comparator.comparingLong(CaseOpeningEvent::epochSecond).reversed());
+        return merged;
+    }
+
+    private static void addOrReplace(List<CaseOpeningEvent> events, EventFingerprintIndex positions, List<CaseOpeningEvent> merged) {
+        EventFingerprintIndex ordinals = new EventFingerprintIndex(events.size());
+        for (CaseOpeningEvent event : events) {
+            int position = positions.putIfAbsent(event, ordinals.increment(event), merged.size());
+            if (position < 0) {
+                merged.add(event);
+            } else {
+                merged.set(position, event);
+            }
         }
-        // Add new events (they should be more recent, but in case of overlap, they overwrite)
-        for (CaseOpeningEvent event : fresh) {
-            merged.put(event.toString(), event);
+    }
+
+    /**
+     * An event as stored in the JSON caches of earlier versions, which held the names themselves.
+     */
+    private record LegacyCachedEvent(LocalDateTime dateTime, String caseOpened, String keyUsed, String itemReceived,
+                                     String rarity, double casePrice, boolean isRental) {
+        CaseOpeningEvent toEvent() {
+            return new CaseOpeningEvent(dateTime, caseOpened, keyUsed, itemReceived, rarity, casePrice, isRental);
         }
-        return new ArrayList<>(merged.values());
     }
 }
@@ -0,0 +1,84 @@
+package cla33ic.casefetcher.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A circuit breaker for one host.
+ * <p>
+ * The circuit opens after a number of consecutive failures, and while it is open no requests are sent.
+ * Once the open time has passed it is half-open: a single probe request is let through, which closes the
+ * circuit if it succeeds and opens it again if it fails.
+ */
+public class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openUntilNanos;
+    private long probeStartNanos;
+    private boolean probeInFlight;
+    private long openings;
+
+    /**
+     * @param failureThreshold the number of consecutive failures that opens the circuit
+     * @param openMillis how long the circuit stays open before a probe is let through
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, openMillis));
+    }
+
+    /**
+     * Asks whether a request may be sent now.
+     * @return 0 if it may, otherwise the time in milliseconds until requests may be admitted again
+     */
+    public synchronized long admit() {
+        if (state == State.CLOSED) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        if (state == State.OPEN) {
+            if (now < openUntilNanos) {
+                return Math.max(1, TimeUnit.NANOSECONDS.toMillis(openUntilNanos - now));
+            }
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        // A probe that never reported back (e.g. its caller was interrupted) must not keep the circuit half-open
+        if (!probeInFlight || now - probeStartNanos > openNanos) {
+            probeInFlight = true;
+            probeStartNanos = now;
+            return 0;
+        }
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(openNanos) / 10);
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        state = State.CLOSED;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openUntilNanos = System.nanoTime() + openNanos;
+            probeInFlight = false;
+            openings++;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return how often the circuit has been opened
+     */
+    public synchronized long getOpenings() {
+        return openings;
+    }
+}
@@ -0,0 +1,151 @@
+package cla33ic.casefetcher.util;
+
+import cla33ic.casefetcher.model.CaseOpeningEvent;
+
+/**
+ * Open-addressing table from event natural keys to int values, used to deduplicate events when merging.
+ * <p>
+ * An entry is keyed by the natural key of an event (time, case, key, item, rental flag) together with an
+ * ordinal counting the earlier events with the same natural key in the same list, so that identical openings
+ * within the same minute stay distinct. A 64 bit fingerprint of the key picks the slot and rules out most
+ * mismatches cheaply; the key fields themselves are kept in primitive arrays, so that two keys whose
+ * fingerprints collide are still told apart. The empty slot marker is fingerprint 0, which no key maps to.
+ */
+final class EventFingerprintIndex {
+    private static final long EMPTY = 0L;
+    private static final int ABSENT = -1;
+
+    private long[] fingerprints;
+    private long[] epochSeconds;
+    private int[] caseIds;
+    private int[] keyIds;
+    private int[] itemIds;
+    // Ordinal shifted left by one, with the rental flag in the lowest bit
+    private int[] ordinalsAndRental;
+    private int[] values;
+    private int size;
+
+    EventFingerprintIndex(int expectedSize) {
+        allocate(Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1);
+    }
+
+    /**
+     * Stores the value for the event's natural key and ordinal unless they are already present.
+     * @return the value already stored for them, or -1 if the given value was stored
+     */
+    int putIfAbsent(CaseOpeningEvent event, int ordinal, int value) {
+        long fingerprint = fingerprint(event, ordinal);
+        int slot = slotOf(fingerprint, event, ordinal);
+        if (fingerprints[slot] != EMPTY) {
+            return values[slot];
+        }
+        insert(slot, fingerprint, event, ordinal, value);
+        return ABSENT;
+    }
+
+    /**
+     * Increments the counter stored for the event's natural key.
+     * @return the count before incrementing, 0 for a new key
+     */
+    int increment(CaseOpeningEvent event) {
+        long fingerprint = fingerprint(event, 0);
+        int slot = slotOf(fingerprint, event, 0);
+        if (fingerprints[slot] != EMPTY) {
+            return values[slot]++;
+        }
+        insert(slot, fingerprint, event, 0, 1);
+        return 0;
+    }
+
+    private static long fingerprint(CaseOpeningEvent event, int ordinal) {
+        long hash = event.epochSecond();
+        hash = mix(hash * 31 + event.caseId());
+        hash = mix(hash * 31 + event.keyId());
+        hash = mix(hash * 31 + event.itemId());
+        hash = mix(hash * 31 + (event.isRental() ? 1 : 0));
+        long fingerprint = mix(hash + ordinal * 0x9E3779B97F4A7C15L);
+        // 0 marks empty slots
+        return fingerprint == EMPTY ? 1 : fingerprint;
+    }
+
+    private void insert(int slot, long fingerprint, CaseOpeningEvent event, int ordinal, int value) {
+        store(slot, fingerprint, event.epochSecond(), event.caseId(), event.keyId(), event.itemId(),
+                ordinalAndRental(event, ordinal), value);
+        if (++size * 2 > fingerprints.length) {
+            resize();
+        }
+    }
+
+    private int slotOf(long fingerprint, CaseOpeningEvent event, int ordinal) {
+        int mask = fingerprints.length - 1;
+        int slot = (int) fingerprint & mask;
+        while (fingerprints[slot] != EMPTY && !matches(slot, fingerprint, event, ordinal)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private boolean matches(int slot, long fingerprint, CaseOpeningEvent event, int ordinal) {
+        return fingerprints[slot] == fingerprint
+                && epochSeconds[slot] == event.epochSecond()
+                && caseIds[slot] == event.caseId()
+                && keyIds[slot] == event.keyId()
+                && itemIds[slot] == event.itemId()
+                && ordinalsAndRental[slot] == ordinalAndRental(event, ordinal);
+    }
+
+    private static int ordinalAndRental(CaseOpeningEvent event, int ordinal) {
+        return ordinal << 1 | (event.isRental() ? 1 : 0);
+    }
+
+    private void store(int slot, long fingerprint, long epochSecond, int caseId, int keyId, int itemId,
+                       int ordinalAndRental, int value) {
+        fingerprints[slot] = fingerprint;
+        epochSeconds[slot] = epochSecond;
+        caseIds[slot] = caseId;
+        keyIds[slot] = keyId;
+        itemIds[slot] = itemId;
+        ordinalsAndRental[slot] = ordinalAndRental;
+        values[slot] = value;
+    }
+
+    private void allocate(int capacity) {
+        fingerprints = new long[capacity];
+        epochSeconds = new long[capacity];
+        caseIds = new int[capacity];
+        keyIds = new int[capacity];
+        itemIds = new int[capacity];
+        ordinalsAndRental = new int[capacity];
+        values = new int[capacity];
+    }
+
+    private void resize() {
+        long[] oldFingerprints = fingerprints;
+        long[] oldEpochSeconds = epochSeconds;
+        int[] oldCaseIds = caseIds;
+        int[] oldKeyIds = keyIds;
+        int[] oldItemIds = itemIds;
+        int[] oldOrdinalsAndRental = ordinalsAndRental;
+        int[] oldValues = values;
+        allocate(oldFingerprints.length * 2);
+        int mask = fingerprints.length - 1;
+        for (int i = 0; i < oldFingerprints.length; i++) {
+            if (oldFingerprints[i] != EMPTY) {
+                // All keys are distinct, so the first empty slot is the one
+                int slot = (int) oldFingerprints[i] & mask;
+                while (fingerprints[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                store(slot, oldFingerprints[i], oldEpochSeconds[i], oldCaseIds[i], oldKeyIds[i], oldItemIds[i],
+                        oldOrdinalsAndRental[i], oldValues[i]);
+            }
+        }
+    }
+
+    // SplitMix64 finalizer, spreads the key bits over the whole long
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
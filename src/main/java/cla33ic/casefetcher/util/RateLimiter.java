@@ -1,34 +1,135 @@
 package cla33ic.casefetcher.util;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 /**
- * A simple rate limiter that ensures a minimum interval between consecutive acquisitions.
+ * An adaptive token-bucket rate limiter.
+ * <p>
+ * Tokens are refilled at the current rate up to the burst size, and every acquisition takes one. The rate
+ * follows AIMD: it grows by a fixed step after every successful request, up to a ceiling, and is halved (at
+ * most once per interval) when the server throttles, down to a floor. A {@code Retry-After} pauses the bucket
+ * for the given time. Acquisitions reserve their token under the lock and wait outside of it, so waiting
+ * callers never block each other.
  */
 public class RateLimiter {
-    private final long intervalMillis;
-    private long lastRequestTime = 0;
+    // Ceiling and floor of the rate as multiples of the initial rate
+    private static final double MAX_SPEEDUP = 4.0;
+    private static final double MAX_SLOWDOWN = 16.0;
+    // Successful requests needed to add the initial rate once more
+    private static final int SUCCESSES_PER_INITIAL_RATE = 20;
+
+    private final boolean unlimited;
+    private final int burst;
+    private final double minRate;
+    private final double maxRate;
+    private final double increaseStep;
+    private double rate;
+    private double tokens;
+    private long lastRefillNanos;
+    private long lastDecreaseNanos;
 
     /**
-     * Constructs a RateLimiter with the specified interval in milliseconds.
-     * @param intervalMillis the minimum interval between requests in milliseconds.
+     * Constructs a RateLimiter that initially allows one request per interval.
+     * @param intervalMillis the initial interval between requests in milliseconds, 0 or less for no limit
+     * @param burst the number of requests that may be made at once after a quiet period
      */
-    public RateLimiter(long intervalMillis) {
-        this.intervalMillis = intervalMillis;
+    public RateLimiter(long intervalMillis, int burst) {
+        this.unlimited = intervalMillis <= 0;
+        this.burst = Math.max(1, burst);
+        double initialRate = unlimited ? 0 : 1e9 / TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.rate = initialRate;
+        this.minRate = initialRate / MAX_SLOWDOWN;
+        this.maxRate = initialRate * MAX_SPEEDUP;
+        this.increaseStep = initialRate / SUCCESSES_PER_INITIAL_RATE;
+        this.tokens = 1;
+        this.lastRefillNanos = System.nanoTime();
+        this.lastDecreaseNanos = lastRefillNanos - TimeUnit.DAYS.toNanos(1);
+    }
+
+    /**
+     * Acquires permission to proceed, blocking until a token is available.
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Acquires permission to proceed without blocking.
+     * @return a future completed once the token is available
+     */
+    public CompletableFuture<Void> acquireAsync() {
+        long waitNanos = reserve();
+        if (waitNanos <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Additive increase after a request that was not throttled.
+     */
+    public synchronized void onSuccess() {
+        if (!unlimited) {
+            rate = Math.min(maxRate, rate + increaseStep);
+        }
     }
 
     /**
-     * Acquires permission to proceed. If the time since the last acquisition is less than
-     * the specified interval, this method will block until the interval has passed.
+     * Multiplicative decrease after a throttled request.
+     * @param retryAfterMillis the time the server asked to wait, 0 if it did not say
      */
-    public synchronized void acquire() {
-        long now = System.currentTimeMillis();
-        long waitTime = intervalMillis - (now - lastRequestTime);
-        if (waitTime > 0) {
-            try {
-                Thread.sleep(waitTime);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        }
-        lastRequestTime = System.currentTimeMillis();
+    public synchronized void onThrottled(long retryAfterMillis) {
+        if (unlimited) {
+            return;
+        }
+        long now = System.nanoTime();
+        refill(now);
+        // Requests that were already in flight at the old rate report the same throttling
+        if (now - lastDecreaseNanos >= 1e9 / rate) {
+            rate = Math.max(minRate, rate / 2);
+            lastDecreaseNanos = now;
+        }
+        if (retryAfterMillis > 0) {
+            // No tokens accrue until the pause is over
+            tokens = Math.min(tokens, 0);
+            lastRefillNanos = Math.max(lastRefillNanos, now + TimeUnit.MILLISECONDS.toNanos(retryAfterMillis));
+        }
+    }
+
+    /**
+     * @return the current rate in requests per second
+     */
+    public synchronized double getRate() {
+        return unlimited ? Double.POSITIVE_INFINITY : rate;
+    }
+
+    /**
+     * Takes a token, going into debt if none is left.
+     * @return the nanoseconds to wait until the token is available
+     */
+    private synchronized long reserve() {
+        if (unlimited) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        refill(now);
+        tokens -= 1;
+        long waitNanos = Math.max(0, lastRefillNanos - now);
+        if (tokens < 0) {
+            waitNanos += (long) (-tokens / rate * 1e9);
+        }
+        return waitNanos;
+    }
+
+    private void refill(long now) {
+        if (now > lastRefillNanos) {
+            tokens = Math.min(burst, tokens + (now - lastRefillNanos) * rate / 1e9);
+            lastRefillNanos = now;
+        }
     }
 }
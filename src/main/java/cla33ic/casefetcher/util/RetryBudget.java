@@ -0,0 +1,43 @@
+package cla33ic.casefetcher.util;
+
+/**
+ * Limits retries to a fraction of all requests.
+ * <p>
+ * Every request deposits a fraction of a token and every retry withdraws a whole one, so that in the long run
+ * at most that fraction of the requests are retries. The balance is capped, which also bounds how many retries
+ * can be made in a row when most requests fail.
+ */
+public class RetryBudget {
+    private final double ratio;
+    private final double maxTokens;
+    private double tokens;
+
+    /**
+     * @param ratio the tokens deposited per request, i.e. the long-run ratio of retries to requests
+     * @param maxTokens the cap of the balance, which is also the initial balance
+     */
+    public RetryBudget(double ratio, int maxTokens) {
+        this.ratio = ratio;
+        this.maxTokens = Math.max(1, maxTokens);
+        this.tokens = this.maxTokens;
+    }
+
+    public synchronized void onRequest() {
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    /**
+     * @return whether a retry may be made; if so, its token has been withdrawn
+     */
+    public synchronized boolean tryWithdraw() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    public synchronized double getTokens() {
+        return tokens;
+    }
+}
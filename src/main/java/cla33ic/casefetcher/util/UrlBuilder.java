@@ -7,12 +7,9 @@ import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.Optional;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public final class UrlBuilder {
     private static final Logger logger = LoggerFactory.getLogger(UrlBuilder.class);
-    private static final Pattern CURSOR_PATTERN = Pattern.compile("\"cursor\":\\{\"time\":(\\d+),\"time_frac\":(\\d+),\"s\":\"(\\d+)\"}");
 
     private UrlBuilder() {
         // Private constructor to prevent instantiation
@@ -66,15 +63,4 @@ public final class UrlBuilder {
                     return new IllegalArgumentException("sessionid not found in cookie");
                 });
     }
-
-    public static Optional<String[]> extractCursor(String responseBody) {
-        Matcher matcher = CURSOR_PATTERN.matcher(responseBody);
-        if (matcher.find()) {
-            String[] cursor = new String[]{matcher.group(1), matcher.group(2), matcher.group(3)};
-            logger.debug("Extracted cursor: time={}, time_frac={}, s={}", cursor[0], cursor[1], cursor[2]);
-            return Optional.of(cursor);
-        }
-        logger.debug("No cursor found in response body");
-        return Optional.empty();
-    }
 }
\ No newline at end of file